@@ -0,0 +1,73 @@
+package com.recipes.benchmark;
+
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the same recipe catalogue for a given size on every run, so results of different builds stay comparable.
+ * Value frequencies are skewed on purpose: a few dish types and ingredients are very common, most are rare, which is
+ * closer to real data than a uniform spread and exercises both selective and broad searches.
+ */
+public final class RecipeDatasetGenerator {
+
+    public static final String[] DISH_TYPES = {"veg", "nonveg", "vegan", "dessert", "drink", "soup", "salad", "snack"};
+    public static final int INGREDIENT_VOCABULARY_SIZE = 500;
+    public static final int INSTRUCTION_VOCABULARY_SIZE = 2000;
+
+    private static final long SEED = 20221017L;
+
+    private RecipeDatasetGenerator() {
+    }
+
+    public static List<Recipe> generate(int size) {
+        var random = new SplittableRandom(SEED);
+        var recipes = new ArrayList<Recipe>(size);
+        int ingredientId = 1;
+        for(int id = 1; id <= size; id++) {
+            var recipe = new Recipe();
+            recipe.setId(id);
+            recipe.setName("Recipe " + id);
+            recipe.setType(DISH_TYPES[skewed(random, DISH_TYPES.length)]);
+            recipe.setServingCapacity(1 + random.nextInt(8));
+            recipe.setVersion(0);
+
+            int ingredientCount = 3 + random.nextInt(8);
+            var ingredients = new ArrayList<Ingredient>(ingredientCount);
+            for(int i = 0; i < ingredientCount; i++)
+                ingredients.add(new Ingredient(ingredientId++, ingredientName(skewed(random, INGREDIENT_VOCABULARY_SIZE)),
+                        (1 + random.nextInt(500)) + " g"));
+            recipe.setIngredientList(ingredients);
+
+            int wordCount = 20 + random.nextInt(60);
+            var instruction = new StringBuilder();
+            for(int i = 0; i < wordCount; i++) {
+                if(i > 0)
+                    instruction.append(' ');
+                instruction.append(instructionWord(skewed(random, INSTRUCTION_VOCABULARY_SIZE)));
+            }
+            recipe.setInstruction(instruction.toString());
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    public static String ingredientName(int rank) {
+        return "ingredient" + rank;
+    }
+
+    public static String instructionWord(int rank) {
+        return "word" + rank;
+    }
+
+    /**
+     * Picks a rank in [0, bound) where low ranks are far more likely than high ones (roughly Zipf like).
+     */
+    private static int skewed(SplittableRandom random, int bound) {
+        double uniform = random.nextDouble();
+        return (int) Math.min(bound - 1, Math.floor(Math.pow(bound, uniform * uniform)) - 1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.recipes.benchmark;
+
+import com.recipes.RecipesApplication;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Recipe;
+import com.recipes.repository.IngredientDictionary;
+import com.recipes.repository.RecipeRepository;
+import com.recipes.service.RecipesService;
+import com.recipes.utils.RecipeMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Single recipe lookup against the embedded H2 database, once through the recipe cache and once straight from the
+ * database the way a cache miss in {@link RecipesService#getRecipe} loads it. Cached lookups cycle over at most as
+ * many recipes as the cache holds, database lookups over all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeLookupBenchmark {
+
+    private static final RecipeMapper RECIPE_MAPPER = RecipeMapper.INSTANCE;
+    private static final int SEED_BATCH_SIZE = 1000;
+    // Matches the maximumSize of the recipe cache set up below
+    private static final int CACHE_SIZE = 10000;
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private ConfigurableApplicationContext applicationContext;
+    private RecipesService recipesService;
+    private RecipeRepository recipeRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private int[] lookupIds;
+    private int[] cachedIds;
+    private int next;
+    private int nextCached;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new SpringApplicationBuilder(RecipesApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;MODE=Oracle",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "recipes.search.index.enabled=false",
+                        "spring.cache.caffeine.spec=maximumSize=" + CACHE_SIZE + ",recordStats")
+                .run();
+        recipesService = applicationContext.getBean(RecipesService.class);
+        recipeRepository = applicationContext.getBean(RecipeRepository.class);
+        var ingredientDictionary = applicationContext.getBean(IngredientDictionary.class);
+        var transactionTemplate = applicationContext.getBean(TransactionTemplate.class);
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+
+        var recipeIds = new ArrayList<Integer>(size);
+        var recipes = RecipeDatasetGenerator.generate(size);
+        for(int from = 0; from < recipes.size(); from += SEED_BATCH_SIZE) {
+            var batch = recipes.subList(from, Math.min(from + SEED_BATCH_SIZE, recipes.size()));
+            recipeIds.addAll(transactionTemplate.execute(status -> {
+                var recipeEntities = batch.stream().map(RecipeLookupBenchmark::toNewEntity).collect(Collectors.toList());
+                ingredientDictionary.assignNameIds(recipeEntities.stream()
+                        .flatMap(recipeEntity -> recipeEntity.getIngredientEntityList().stream()).collect(Collectors.toList()));
+                return recipeRepository.saveAll(recipeEntities).stream().map(RecipeEntity::getId).collect(Collectors.toList());
+            }));
+        }
+
+        // A fixed random order over all recipes, so lookups do not walk the primary key index sequentially
+        Collections.shuffle(recipeIds, new Random(size));
+        lookupIds = recipeIds.stream().mapToInt(Integer::intValue).toArray();
+        // Larger sizes do not fit the cache, only as many recipes as it holds are looked up through it
+        cachedIds = Arrays.copyOf(lookupIds, Math.min(lookupIds.length, CACHE_SIZE));
+        for(int id : cachedIds)
+            readOnlyTransaction.execute(status -> recipesService.getRecipe(id));
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    /**
+     * Only ids loaded into the cache during setup are looked up, and there are no more of them than the cache holds,
+     * so every call is a hit that never reaches the database. A miss would load the recipe outside of a transaction.
+     */
+    @Benchmark
+    public Recipe getRecipeCached() {
+        if(nextCached == cachedIds.length)
+            nextCached = 0;
+        return recipesService.getRecipe(cachedIds[nextCached++]);
+    }
+
+    @Benchmark
+    public Recipe getRecipeFromDatabase() {
+        int id = nextId();
+        return readOnlyTransaction.execute(status -> RECIPE_MAPPER.recipeEntityToRecipe(recipeRepository.findById(id).orElseThrow()));
+    }
+
+    private int nextId() {
+        if(next == lookupIds.length)
+            next = 0;
+        return lookupIds[next++];
+    }
+
+    private static RecipeEntity toNewEntity(Recipe recipe) {
+        var recipeEntity = RECIPE_MAPPER.recipeToRecipeEntity(recipe);
+        recipeEntity.setId(null);
+        recipeEntity.setVersion(null);
+        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> {
+            ingredientEntity.setId(null);
+            ingredientEntity.setRecipeEntity(recipeEntity);
+        });
+        return recipeEntity;
+    }
+}
@@ -0,0 +1,42 @@
+package com.recipes.benchmark;
+
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Recipe;
+import com.recipes.utils.RecipeMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping runs for every recipe a read returns, DTO to entity for every write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeMapperBenchmark {
+
+    private static final RecipeMapper RECIPE_MAPPER = RecipeMapper.INSTANCE;
+
+    private Recipe recipe;
+    private RecipeEntity recipeEntity;
+
+    @Setup
+    public void setUp() {
+        recipe = RecipeDatasetGenerator.generate(1).get(0);
+        recipeEntity = RECIPE_MAPPER.recipeToRecipeEntity(recipe);
+        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> ingredientEntity.setRecipeEntity(recipeEntity));
+    }
+
+    @Benchmark
+    public Recipe entityToDto() {
+        return RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity);
+    }
+
+    @Benchmark
+    public RecipeEntity dtoToEntity() {
+        return RECIPE_MAPPER.recipeToRecipeEntity(recipe);
+    }
+}
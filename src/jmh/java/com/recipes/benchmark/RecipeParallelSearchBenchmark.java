@@ -0,0 +1,66 @@
+package com.recipes.benchmark;
+
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.pojos.ScoredRecipe;
+import com.recipes.repository.TestIngredientDictionary;
+import com.recipes.search.RecipeSearchIndex;
+import com.recipes.utils.ParallelRangeExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against parallel evaluation of searches returning most of the catalogue (materializing every match and
+ * ranking a common instruction word), to find the result size from which splitting by id range pays off. The
+ * parallel executor splits from 1000 results on, so every size above measures the split itself; the smallest size
+ * where parallel wins is the value for {@code recipes.search.parallel.threshold}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecipeParallelSearchBenchmark {
+
+    @Param({"10000", "50000", "100000", "1000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private ParallelRangeExecutor parallelRangeExecutor;
+    private RecipeSearchIndex recipeSearchIndex;
+    private RecipeSearchCriteria allCriteria;
+    private String rankedQuery;
+
+    @Setup
+    public void setUp() {
+        parallelRangeExecutor = parallel
+                ? ParallelRangeExecutor.withPool("benchmark-", Runtime.getRuntime().availableProcessors(), 1000, 8)
+                : ParallelRangeExecutor.SEQUENTIAL;
+        recipeSearchIndex = new RecipeSearchIndex(TestIngredientDictionary.create(), parallelRangeExecutor);
+        RecipeDatasetGenerator.generate(size).forEach(recipeSearchIndex::index);
+        recipeSearchIndex.markReady();
+
+        allCriteria = new RecipeSearchCriteria();
+        rankedQuery = RecipeDatasetGenerator.instructionWord(0) + " " + RecipeDatasetGenerator.instructionWord(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelRangeExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<Recipe> materializeAll() {
+        return recipeSearchIndex.search(allCriteria);
+    }
+
+    @Benchmark
+    public List<ScoredRecipe> rankCommonWords() {
+        return recipeSearchIndex.rankedSearch(rankedQuery, allCriteria, 20);
+    }
+}
@@ -0,0 +1,67 @@
+package com.recipes.benchmark;
+
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.repository.TestIngredientDictionary;
+import com.recipes.search.RecipeSearchIndex;
+import com.recipes.utils.ParallelRangeExecutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search through the in-memory index for a selective query (rare ingredient, specific type and serving size),
+ * a broad one (common type, excluding a common ingredient) and a full text instruction query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecipeSearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private RecipeSearchIndex recipeSearchIndex;
+    private RecipeSearchCriteria selectiveCriteria;
+    private RecipeSearchCriteria broadCriteria;
+    private RecipeSearchCriteria instructionCriteria;
+
+    @Setup
+    public void setUp() {
+        recipeSearchIndex = new RecipeSearchIndex(TestIngredientDictionary.create(), ParallelRangeExecutor.SEQUENTIAL);
+        RecipeDatasetGenerator.generate(size).forEach(recipeSearchIndex::index);
+        recipeSearchIndex.markReady();
+
+        selectiveCriteria = new RecipeSearchCriteria();
+        selectiveCriteria.setDishType(RecipeDatasetGenerator.DISH_TYPES[1]);
+        selectiveCriteria.setNumberOfServing(4);
+        selectiveCriteria.setIncludedIngredients(List.of(RecipeDatasetGenerator.ingredientName(250)));
+
+        broadCriteria = new RecipeSearchCriteria();
+        broadCriteria.setDishType(RecipeDatasetGenerator.DISH_TYPES[0]);
+        broadCriteria.setExcludedIngredients(List.of(RecipeDatasetGenerator.ingredientName(0)));
+
+        instructionCriteria = new RecipeSearchCriteria();
+        instructionCriteria.setInstructionSearch(RecipeDatasetGenerator.instructionWord(3) + " "
+                + RecipeDatasetGenerator.instructionWord(40));
+    }
+
+    @Benchmark
+    public List<Recipe> selectiveSearch() {
+        return recipeSearchIndex.search(selectiveCriteria);
+    }
+
+    @Benchmark
+    public List<Recipe> broadSearch() {
+        return recipeSearchIndex.search(broadCriteria);
+    }
+
+    @Benchmark
+    public List<Recipe> instructionSearch() {
+        return recipeSearchIndex.search(instructionCriteria);
+    }
+}
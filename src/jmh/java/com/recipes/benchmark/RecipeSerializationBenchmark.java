@@ -0,0 +1,39 @@
+package com.recipes.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.recipes.pojos.Recipe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a {@code GET /api/recipes} page as JSON, for the default and the maximum page size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private List<Recipe> page;
+    private ObjectWriter pageWriter;
+
+    @Setup
+    public void setUp() {
+        page = RecipeDatasetGenerator.generate(pageSize);
+        pageWriter = JsonMapper.builder().findAndAddModules().build().writerFor(List.class);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,92 @@
+package com.recipes.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.recipes.pojos.Recipe;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode and decode cost of a {@code GET /api/recipes} page in each negotiable wire format. The payload size of every
+ * format, raw and gzip compressed, is logged once per trial since JMH only reports times.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeWireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private List<Recipe> page;
+    private ObjectWriter pageWriter;
+    private ObjectReader pageReader;
+    private byte[] encodedPage;
+
+    @Setup
+    public void setUp() throws IOException {
+        var objectMapper = new ObjectMapper(factory(format)).findAndRegisterModules();
+        page = RecipeDatasetGenerator.generate(pageSize);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Recipe.class));
+        pageReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Recipe.class));
+        encodedPage = pageWriter.writeValueAsBytes(page);
+        log.info("{} page of {} recipes: {} bytes, {} bytes gzip compressed", format, pageSize,
+                encodedPage.length, gzip(encodedPage).length);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Recipe> decodePage() throws IOException {
+        return pageReader.readValue(encodedPage);
+    }
+
+    private static JsonFactory factory(String format) {
+        switch(format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -2,8 +2,14 @@ package com.recipes;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.core.Ordered;
 
-@SpringBootApplication
+// Caching wraps the transaction advice, so evictions run only after the writing transaction has committed.
+// R2DBC is configured by ReactiveRecipeRepository itself, an auto-configured ConnectionFactory would disable the DataSource.
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 public class RecipesApplication {
     public static void main(String args[]) {
         SpringApplication.run(RecipesApplication.class, args);
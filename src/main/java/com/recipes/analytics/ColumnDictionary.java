@@ -0,0 +1,31 @@
+package com.recipes.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the values of one column as dense int codes in order of first appearance. Null is a value like any other.
+ * Codes are never released, so a code stays valid for the lifetime of the store.
+ */
+class ColumnDictionary<T> {
+
+    private final Map<T, Integer> codes = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    int encode(T value) {
+        return codes.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size() - 1;
+        });
+    }
+
+    T decode(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,334 @@
+package com.recipes.analytics;
+
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.exception.BadRequestException;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeGroupBy;
+import com.recipes.pojos.RecipeGroupStats;
+import com.recipes.search.TextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column oriented copy of RECIPE and INGREDIENT for analytics. Every recipe occupies a slot in a set of parallel
+ * primitive arrays (id, dictionary encoded type, serving capacity and creation month, creation time, ingredient
+ * count), every ingredient is a row of recipe slot and dictionary encoded canonical name. Group-by queries are single
+ * loops over those arrays rather than walks over entity graphs.
+ *
+ * Writes are applied from the recipe write events: a saved recipe is appended to a new slot and its previous slot
+ * is marked dead, a deleted one only marked dead. Dead slots and their ingredient rows are dropped once they
+ * outnumber the live ones. The ids of recipes deleted while the store is loaded are kept until it is ready, so a row
+ * read before the delete committed is not loaded after it.
+ */
+@Component
+@Slf4j
+public class RecipeColumnStore {
+
+    // Upper bound on the dense group counters one query may allocate
+    static final int MAX_GROUPS = 1 << 22;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_DEAD_SLOTS_TO_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ColumnDictionary<String> types = new ColumnDictionary<>();
+    private final ColumnDictionary<Integer> servingCapacities = new ColumnDictionary<>();
+    private final ColumnDictionary<String> creationMonths = new ColumnDictionary<>();
+    private final ColumnDictionary<String> ingredientNames = new ColumnDictionary<>();
+    private final Map<Integer, Integer> slotsById = new HashMap<>();
+    // Recipes deleted before the store was ready, guarded by the write lock like the columns
+    private final Set<Integer> deletedWhileLoading = new HashSet<>();
+
+    // Recipe columns, one entry per slot
+    private int slotCount;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] typeCodes = new int[INITIAL_CAPACITY];
+    private int[] servingCapacityCodes = new int[INITIAL_CAPACITY];
+    private int[] creationMonthCodes = new int[INITIAL_CAPACITY];
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+    private int[] ingredientCounts = new int[INITIAL_CAPACITY];
+    // 1 for live slots, 0 for dead ones, so loops can weigh every slot instead of branching
+    private int[] liveFlags = new int[INITIAL_CAPACITY];
+
+    // Ingredient columns, one entry per ingredient row
+    private int ingredientRowCount;
+    private int[] ingredientSlots = new int[INITIAL_CAPACITY];
+    private int[] ingredientCodes = new int[INITIAL_CAPACITY];
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        lock.writeLock().lock();
+        try {
+            deletedWhileLoading.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe column store ready with {} recipes", size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeSaved(RecipeSavedEvent event) {
+        var recipe = event.getRecipe();
+        var creationTime = event.getCreationDate().getTime();
+        lock.writeLock().lock();
+        try {
+            put(recipe.getId(), recipe.getType(), recipe.getServingCapacity(), creationTime, ingredientNames(recipe));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeDeleted(RecipeDeletedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if(!ready)
+                deletedWhileLoading.add(event.getRecipeId());
+            var slot = slotsById.remove(event.getRecipeId());
+            if(slot != null)
+                killSlot(slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a recipe read from the database while the store is loaded. A recipe already written or deleted through an
+     * event in the meantime is newer than the row read, the row is then skipped.
+     */
+    public void load(int id, String type, Integer servingCapacity, long creationTime, Collection<String> ingredients) {
+        lock.writeLock().lock();
+        try {
+            if(!slotsById.containsKey(id) && !deletedWhileLoading.contains(id))
+                put(id, type, servingCapacity, creationTime, TextAnalyzer.normalizeIngredientNames(ingredients));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of recipes and their average ingredient count per combination of the grouped values, largest groups
+     * first. Grouping by ingredient counts every recipe once for each of its ingredients.
+     *
+     * Each dimension is a column of dense codes, the group of a row is the mixed radix number of its codes, computed
+     * one dimension at a time in a branch free loop, and counted into arrays indexed by that number.
+     */
+    public List<RecipeGroupStats> group(List<RecipeGroupBy> dimensions) {
+        lock.readLock().lock();
+        try {
+            var byIngredient = dimensions.contains(RecipeGroupBy.INGREDIENT);
+            int rows = byIngredient ? ingredientRowCount : slotCount;
+            var slots = byIngredient ? ingredientSlots : null;
+
+            var cardinalities = new int[dimensions.size()];
+            long groupCount = 1;
+            for(int d = 0; d < dimensions.size(); d++) {
+                cardinalities[d] = dictionary(dimensions.get(d)).size();
+                groupCount *= Math.max(cardinalities[d], 1);
+                if(groupCount > MAX_GROUPS)
+                    throw new BadRequestException("Too many groups, group by fewer dimensions");
+            }
+
+            var groups = new int[rows];
+            for(int d = 0; d < dimensions.size(); d++) {
+                var codes = dimension(dimensions.get(d));
+                int cardinality = cardinalities[d];
+                if(codes == ingredientCodes || slots == null) {
+                    for(int r = 0; r < rows; r++)
+                        groups[r] = groups[r] * cardinality + codes[r];
+                } else {
+                    for(int r = 0; r < rows; r++)
+                        groups[r] = groups[r] * cardinality + codes[slots[r]];
+                }
+            }
+
+            var recipes = new long[(int) groupCount];
+            var ingredientTotals = new long[(int) groupCount];
+            for(int r = 0; r < rows; r++) {
+                int slot = slots == null ? r : slots[r];
+                int live = liveFlags[slot];
+                recipes[groups[r]] += live;
+                ingredientTotals[groups[r]] += (long) live * ingredientCounts[slot];
+            }
+            return groupStats(dimensions, cardinalities, recipes, ingredientTotals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<RecipeGroupStats> groupStats(List<RecipeGroupBy> dimensions, int[] cardinalities, long[] recipes,
+                                              long[] ingredientTotals) {
+        var groupStats = new ArrayList<RecipeGroupStats>();
+        for(int g = 0; g < recipes.length; g++) {
+            if(recipes[g] == 0)
+                continue;
+            var values = new Object[dimensions.size()];
+            int remainder = g;
+            for(int d = dimensions.size() - 1; d >= 0; d--) {
+                values[d] = dictionary(dimensions.get(d)).decode(remainder % cardinalities[d]);
+                remainder /= cardinalities[d];
+            }
+            var group = new LinkedHashMap<String, Object>();
+            for(int d = 0; d < dimensions.size(); d++)
+                group.put(dimensions.get(d).getParameterName(), values[d]);
+            groupStats.add(new RecipeGroupStats(group, recipes[g], (double) ingredientTotals[g] / recipes[g]));
+        }
+        groupStats.sort(Comparator.comparingLong(RecipeGroupStats::getRecipes).reversed());
+        return groupStats;
+    }
+
+    private ColumnDictionary<?> dictionary(RecipeGroupBy dimension) {
+        switch(dimension) {
+            case DISH_TYPE:
+                return types;
+            case NUMBER_OF_SERVING:
+                return servingCapacities;
+            case CREATION_MONTH:
+                return creationMonths;
+            default:
+                return ingredientNames;
+        }
+    }
+
+    private int[] dimension(RecipeGroupBy dimension) {
+        switch(dimension) {
+            case DISH_TYPE:
+                return typeCodes;
+            case NUMBER_OF_SERVING:
+                return servingCapacityCodes;
+            case CREATION_MONTH:
+                return creationMonthCodes;
+            default:
+                return ingredientCodes;
+        }
+    }
+
+    // Callers hold the write lock
+    private void put(int id, String type, Integer servingCapacity, long creationTime, Set<String> ingredients) {
+        var previousSlot = slotsById.remove(id);
+        if(previousSlot != null)
+            killSlot(previousSlot);
+        if(slotCount == ids.length)
+            growSlots();
+        int slot = slotCount++;
+        ids[slot] = id;
+        typeCodes[slot] = types.encode(type);
+        servingCapacityCodes[slot] = servingCapacities.encode(servingCapacity);
+        creationTimes[slot] = creationTime;
+        creationMonthCodes[slot] = creationMonths.encode(
+                YearMonth.from(Instant.ofEpochMilli(creationTime).atZone(ZoneOffset.UTC)).toString());
+        ingredientCounts[slot] = ingredients.size();
+        liveFlags[slot] = 1;
+        for(String ingredient : ingredients) {
+            if(ingredientRowCount == ingredientSlots.length) {
+                ingredientSlots = Arrays.copyOf(ingredientSlots, ingredientRowCount * 2);
+                ingredientCodes = Arrays.copyOf(ingredientCodes, ingredientRowCount * 2);
+            }
+            ingredientSlots[ingredientRowCount] = slot;
+            ingredientCodes[ingredientRowCount++] = ingredientNames.encode(ingredient);
+        }
+        slotsById.put(id, slot);
+    }
+
+    private void killSlot(int slot) {
+        liveFlags[slot] = 0;
+        int deadSlots = slotCount - slotsById.size();
+        if(deadSlots >= MIN_DEAD_SLOTS_TO_COMPACT && deadSlots > slotsById.size())
+            compact();
+    }
+
+    private void growSlots() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        servingCapacityCodes = Arrays.copyOf(servingCapacityCodes, capacity);
+        creationMonthCodes = Arrays.copyOf(creationMonthCodes, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+        ingredientCounts = Arrays.copyOf(ingredientCounts, capacity);
+        liveFlags = Arrays.copyOf(liveFlags, capacity);
+    }
+
+    /**
+     * Moves the live slots and their ingredient rows to the front of the arrays, in their current order.
+     */
+    private void compact() {
+        var newSlots = new int[slotCount];
+        int live = 0;
+        for(int slot = 0; slot < slotCount; slot++) {
+            if(liveFlags[slot] == 0) {
+                newSlots[slot] = -1;
+                continue;
+            }
+            newSlots[slot] = live;
+            ids[live] = ids[slot];
+            typeCodes[live] = typeCodes[slot];
+            servingCapacityCodes[live] = servingCapacityCodes[slot];
+            creationMonthCodes[live] = creationMonthCodes[slot];
+            creationTimes[live] = creationTimes[slot];
+            ingredientCounts[live] = ingredientCounts[slot];
+            liveFlags[live] = 1;
+            slotsById.put(ids[live], live);
+            live++;
+        }
+        int liveRows = 0;
+        for(int r = 0; r < ingredientRowCount; r++) {
+            int newSlot = newSlots[ingredientSlots[r]];
+            if(newSlot < 0)
+                continue;
+            ingredientSlots[liveRows] = newSlot;
+            ingredientCodes[liveRows++] = ingredientCodes[r];
+        }
+        Arrays.fill(liveFlags, live, slotCount, 0);
+        log.debug("Compacted recipe column store from {} to {} slots", slotCount, live);
+        slotCount = live;
+        ingredientRowCount = liveRows;
+    }
+
+    private static Set<String> ingredientNames(Recipe recipe) {
+        var names = new LinkedHashSet<String>();
+        if(recipe.getIngredientList() != null) {
+            for(Ingredient ingredient : recipe.getIngredientList()) {
+                if(StringUtils.isNotBlank(ingredient.getName()))
+                    names.add(TextAnalyzer.normalizeIngredientName(ingredient.getName()));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,32 @@
+package com.recipes.analytics;
+
+import com.recipes.service.RecipeAnalyticsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the column store from the database once the application has started. Until the store is marked ready
+ * analytics queries read the recipes themselves.
+ */
+@Component
+@ConditionalOnProperty(name = "recipes.analytics.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class RecipeColumnStoreLoader {
+
+    @Autowired
+    private RecipeAnalyticsService recipeAnalyticsService;
+
+    @Autowired
+    private RecipeColumnStore recipeColumnStore;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadColumns() {
+        log.info("Building recipe column store from database");
+        recipeAnalyticsService.loadColumns(recipeColumnStore);
+        recipeColumnStore.markReady();
+    }
+}
@@ -0,0 +1,30 @@
+package com.recipes.config;
+
+import com.recipes.utils.ParallelRangeExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opt-in mode splitting large in-memory searches (materializing index matches, ranking, mapping entities) by id
+ * range over a dedicated fork-join pool. Searches touching fewer than {@code recipes.search.parallel.threshold}
+ * recipes stay on the request thread; see {@code RecipeParallelSearchBenchmark} for where the split starts to pay off.
+ */
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class ParallelSearchConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ParallelRangeExecutor parallelRangeExecutor(@Value("${recipes.search.parallel.enabled:false}") boolean enabled,
+                                                       @Value("${recipes.search.parallel.pool-size:0}") int poolSize,
+                                                       @Value("${recipes.search.parallel.threshold:50000}") int threshold,
+                                                       @Value("${recipes.search.parallel.max-tasks-per-search:4}") int maxTasks) {
+        if(!enabled)
+            return ParallelRangeExecutor.SEQUENTIAL;
+        var size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        log.info("Splitting searches over {} recipes across a pool of {} threads, at most {} tasks per search",
+                threshold, size, maxTasks);
+        return ParallelRangeExecutor.withPool("recipe-search-", size, threshold, maxTasks);
+    }
+}
@@ -0,0 +1,85 @@
+package com.recipes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in mode running every servlet request, and with it every blocking repository call, on its own virtual thread
+ * instead of Tomcat's bounded worker pool. Asynchronous MVC work (streamed responses) uses virtual threads as well.
+ * Concurrency towards the database is then bounded by the Hikari pool alone, so the pool is sized here as well, see
+ * {@link ConnectionPoolPostProcessor}.
+ */
+@Configuration(proxyBeanMethods = false)
+@Conditional(VirtualThreadsCondition.class)
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        log.info("Handling requests on virtual threads");
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean
+    public static ConnectionPoolPostProcessor virtualThreadConnectionPoolPostProcessor(
+            @Value("${recipes.virtual-threads.connection-pool-size:20}") int poolSize,
+            @Value("${recipes.virtual-threads.connection-timeout-ms:5000}") long connectionTimeoutMs) {
+        return new ConnectionPoolPostProcessor(poolSize, connectionTimeoutMs);
+    }
+
+    /**
+     * Keeps the Hikari pool at a fixed size, as the number of threads asking for connections is no longer bounded,
+     * and fails a request that waits longer than the connection timeout instead of queueing it behind every other.
+     * Runs before unordered post processors, which may wrap the data source.
+     */
+    static class ConnectionPoolPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final int poolSize;
+        private final long connectionTimeoutMs;
+
+        ConnectionPoolPostProcessor(int poolSize, long connectionTimeoutMs) {
+            this.poolSize = poolSize;
+            this.connectionTimeoutMs = connectionTimeoutMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if(bean instanceof HikariDataSource) {
+                var dataSource = (HikariDataSource) bean;
+                dataSource.setMaximumPoolSize(poolSize);
+                dataSource.setMinimumIdle(poolSize);
+                dataSource.setConnectionTimeout(connectionTimeoutMs);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.recipes.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without compiling against a JDK that has them; the build targets Java 11, the
+ * executor is looked up reflectively and only exists on JDK 21 and later.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch(NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * An executor starting a new virtual thread for every task.
+     *
+     * @throws IllegalStateException when the running JDK has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Virtual threads are not supported by Java " + Runtime.version(), ex);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.recipes.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches when {@code recipes.virtual-threads.enabled} is set and the running JDK supports virtual threads.
+ */
+class VirtualThreadsCondition extends SpringBootCondition {
+
+    static final String ENABLED_PROPERTY = "recipes.virtual-threads.enabled";
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        if(!context.getEnvironment().getProperty(ENABLED_PROPERTY, Boolean.class, false))
+            return ConditionOutcome.noMatch(ENABLED_PROPERTY + " is not set");
+        if(!VirtualThreads.isAvailable())
+            return ConditionOutcome.noMatch(ENABLED_PROPERTY + " is set but Java " + Runtime.version() + " has no virtual threads");
+        return ConditionOutcome.match("virtual threads are enabled and available");
+    }
+}
@@ -0,0 +1,43 @@
+package com.recipes.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Binary encodings of the JSON payloads for service to service callers, picked through the Accept header:
+ * CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}). Both use the application's
+ * Jackson configuration. Spring Boot puts these converters where Spring MVC's defaults for the same formats would
+ * be, behind the JSON converter, so a request without a specific Accept header still gets JSON.
+ *
+ * Such a request is also negotiated as preferring JSON, so where a JSON handler and a binary handler are mapped to the
+ * same path with different {@code produces}, it is routed to the JSON one; Accept headers naming none of the formats
+ * still get a 406.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WireFormatConfiguration implements WebMvcConfigurer {
+
+    public static final String SMILE_MEDIA_TYPE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
+        configurer.defaultContentType(MediaType.APPLICATION_JSON, MediaType.ALL);
+    }
+}
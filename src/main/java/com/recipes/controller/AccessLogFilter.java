@@ -0,0 +1,67 @@
+package com.recipes.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one key=value access log line per request to the {@code com.recipes.access} logger. Only a sample of
+ * {@code recipes.access-log.sample-rate} requests is logged, slow requests and server errors always are. Streaming
+ * responses are logged once their asynchronous part has completed.
+ */
+@Component
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("com.recipes.access");
+    private static final String START_TIME_ATTRIBUTE = AccessLogFilter.class.getName() + ".startTime";
+
+    @Value("${recipes.access-log.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${recipes.access-log.slow-request-ms:1000}")
+    private long slowRequestMillis;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if(!ACCESS_LOG.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var startTime = (Long) request.getAttribute(START_TIME_ATTRIBUTE);
+        if(startTime == null) {
+            startTime = System.nanoTime();
+            request.setAttribute(START_TIME_ATTRIBUTE, startTime);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if(!isAsyncStarted(request))
+                log(request, response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+    }
+
+    private void log(HttpServletRequest request, HttpServletResponse response, long durationMillis) {
+        int status = response.getStatus();
+        if(status < 500 && durationMillis < slowRequestMillis && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+            return;
+        ACCESS_LOG.info("method={} uri={} query={} status={} durationMs={}", request.getMethod(),
+                request.getRequestURI(), request.getQueryString(), status, durationMillis);
+    }
+}
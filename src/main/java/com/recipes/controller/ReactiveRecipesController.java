@@ -0,0 +1,81 @@
+package com.recipes.controller;
+
+import com.recipes.pojos.Recipe;
+import com.recipes.service.ReactiveRecipesService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Read endpoints backed by R2DBC. Spring MVC subscribes to the returned publishers and completes the request
+ * asynchronously, so no request thread waits on the database. A {@link Flux} requested as JSON is collected into an
+ * array before anything is written, so the JSON endpoints return at most {@code limit} recipes, capped like
+ * {@code /api/recipes}; requested as NDJSON it is written recipe by recipe, and the next recipe is only requested
+ * from the database once the previous one has been written to the client.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@ConditionalOnProperty(name = "recipes.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveRecipesController {
+
+    @Autowired
+    private ReactiveRecipesService reactiveRecipesService;
+
+    @GetMapping("/recipe/{id}")
+    public Mono<ResponseEntity<Recipe>> getRecipe(@PathVariable Integer id) {
+        log.debug("Processing reactive get recipe with recipeId: {}", id);
+        return reactiveRecipesService.getRecipe(id)
+                .map(recipe -> ResponseEntity.status(HttpStatus.OK).eTag(RecipesController.eTag(recipe)).body(recipe));
+    }
+
+    @GetMapping("/recipes")
+    public Flux<Recipe> getAllRecipes(@RequestParam(required = false) Integer afterId,
+                                      @RequestParam(required = false, defaultValue = "100") Integer limit) {
+        log.debug("Processing reactive get all recipes after recipeId: {}", afterId);
+        return reactiveRecipesService.getAllRecipes(afterId, limit);
+    }
+
+    @GetMapping(value = "/recipes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Recipe> streamAllRecipes(@RequestParam(required = false) Integer afterId) {
+        log.debug("Processing reactive stream all recipes after recipeId: {}", afterId);
+        return reactiveRecipesService.streamAllRecipes(afterId);
+    }
+
+    @GetMapping(value = "/search/recipe", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<Recipe> searchRecipe(@RequestParam(required = false) String dishType, @RequestParam(required = false) Integer numberOfServing,
+                                     @RequestParam(required = false) String ingredient, @RequestParam(required = false, defaultValue = "true") Boolean ingredientIncluded,
+                                     @RequestParam(required = false) String instructionSearch,
+                                     @RequestParam(required = false) List<String> includeIngredients,
+                                     @RequestParam(required = false) List<String> excludeIngredients,
+                                     @RequestParam(required = false, defaultValue = "100") Integer limit) {
+        var criteria = RecipesController.buildSearchCriteria(dishType, numberOfServing, ingredient, ingredientIncluded,
+                instructionSearch, includeIngredients, excludeIngredients);
+        log.debug("Processing reactive search recipe with criteria: {} and limit: {}", criteria, limit);
+        return reactiveRecipesService.searchRecipe(criteria, limit);
+    }
+
+    @GetMapping(value = "/search/recipe", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Recipe> streamSearchRecipe(@RequestParam(required = false) String dishType, @RequestParam(required = false) Integer numberOfServing,
+                                           @RequestParam(required = false) String ingredient, @RequestParam(required = false, defaultValue = "true") Boolean ingredientIncluded,
+                                           @RequestParam(required = false) String instructionSearch,
+                                           @RequestParam(required = false) List<String> includeIngredients,
+                                           @RequestParam(required = false) List<String> excludeIngredients) {
+        var criteria = RecipesController.buildSearchCriteria(dishType, numberOfServing, ingredient, ingredientIncluded,
+                instructionSearch, includeIngredients, excludeIngredients);
+        log.debug("Processing reactive stream search recipe with criteria: {}", criteria);
+        return reactiveRecipesService.streamSearchRecipe(criteria);
+    }
+}
@@ -0,0 +1,38 @@
+package com.recipes.controller;
+
+import com.recipes.pojos.Recipe;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Objects;
+
+/**
+ * Gives a recipe written in a binary format the ETag of that format. Handlers that leave the format to the message
+ * converters, such as PUT and PATCH, set the JSON ETag of the recipe, which is suffixed here once the format is known.
+ */
+@RestControllerAdvice(assignableTypes = {RecipesController.class, ReactiveRecipesController.class})
+public class RecipeETagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if(body instanceof Recipe && !MediaType.APPLICATION_JSON.isCompatibleWith(selectedContentType)) {
+            var recipe = (Recipe) body;
+            var headers = response.getHeaders();
+            if(Objects.equals(headers.getETag(), RecipesController.eTag(recipe)))
+                headers.setETag(RecipesController.eTag(recipe.getVersion(), selectedContentType));
+        }
+        return body;
+    }
+}
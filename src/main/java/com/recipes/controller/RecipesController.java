@@ -1,17 +1,48 @@
 package com.recipes.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipes.config.WireFormatConfiguration;
+import com.recipes.exception.ErrorConstants;
+import com.recipes.exception.PreconditionFailedException;
+import com.recipes.pojos.IngredientSuggestion;
 import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeExportFormat;
+import com.recipes.pojos.RecipeExportSummary;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipeFacets;
+import com.recipes.pojos.RecipeGroupBy;
+import com.recipes.pojos.RecipeGroupStats;
+import com.recipes.pojos.RecipeImportResult;
+import com.recipes.pojos.RecipeLookupResult;
+import com.recipes.pojos.RecipePatch;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.pojos.ScoredRecipe;
+import com.recipes.service.RecipeAnalyticsService;
+import com.recipes.service.RecipeExportService;
+import com.recipes.service.RecipeImportService;
 import com.recipes.service.RecipesService;
+import com.recipes.service.SerializedRecipe;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -19,57 +50,338 @@ import java.util.List;
 @Slf4j
 public class RecipesController {
 
+    public static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
+    private static final MediaType SMILE_MEDIA_TYPE = MediaType.parseMediaType(WireFormatConfiguration.SMILE_MEDIA_TYPE_VALUE);
+
+    // A strong recipe ETag: the version, followed by the suffix of its representation unless that is identity JSON
+    private static final Pattern RECIPE_ETAG = Pattern.compile("\"(\\d+)(?:" + Pattern.quote(SerializedRecipe.GZIP_ETAG_SUFFIX)
+            + "|" + Pattern.quote(eTagSuffix(MediaType.APPLICATION_CBOR)) + "|" + Pattern.quote(eTagSuffix(SMILE_MEDIA_TYPE)) + ")?\"");
+
     @Autowired
     private RecipesService recipesService;
 
+    @Autowired
+    private RecipeImportService recipeImportService;
+
+    @Autowired
+    private RecipeExportService recipeExportService;
+
+    @Autowired
+    private RecipeAnalyticsService recipeAnalyticsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/recipe")
     public ResponseEntity<Integer> createRecipe(@Valid @RequestBody Recipe recipe) {
-        log.info("Processing create new recipe");
+        log.debug("Processing create new recipe");
         var recipeId = recipesService.createRecipe(recipe);
-        log.info("Recipe successfully saved into DB with recipeId: " + recipeId);
+        log.debug("Recipe successfully saved into DB with recipeId: {}", recipeId);
         return ResponseEntity.status(HttpStatus.CREATED).body(recipeId);
     }
 
-    @GetMapping("/recipe/{id}")
-    public ResponseEntity<Recipe> getRecipe(@PathVariable Integer id) {
-        log.info("Processing get recipe ");
+    /**
+     * Writes the cached JSON of the recipe as is; clients accepting gzip get the precompressed copy where one exists,
+     * under its own ETag. An If-None-Match naming either coding of the current version is answered with 304.
+     */
+    @GetMapping(value = "/recipe/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getRecipe(@PathVariable Integer id,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("Processing get recipe with recipeId: {}", id);
+        var serializedRecipe = recipesService.getSerializedRecipe(id);
+        log.debug("Recipe successfully retrieved with recipeId: {}", serializedRecipe.getId());
+        var gzipped = serializedRecipe.getGzippedJson() != null && acceptsGzip(acceptEncoding);
+        var notModified = anyETagMatches(ifNoneMatch, serializedRecipe.getVersion(), "", SerializedRecipe.GZIP_ETAG_SUFFIX);
+        var response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(gzipped ? serializedRecipe.getGzippedETag() : serializedRecipe.getETag());
+        if(serializedRecipe.getGzippedJson() != null)
+            response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if(notModified)
+            return response.build();
+        response.contentType(MediaType.APPLICATION_JSON);
+        if(gzipped)
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(serializedRecipe.getGzippedJson());
+        return response.body(serializedRecipe.getJson());
+    }
+
+    // CBOR and Smile clients get the same cache entry, encoded by the regular message converters; one handler per
+    // format, so the ETag checked against If-None-Match is the one of the format sent
+    @GetMapping(value = "/recipe/{id}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<Recipe> getRecipeAsCbor(@PathVariable Integer id) {
+        return getRecipeInBinaryFormat(id, MediaType.APPLICATION_CBOR);
+    }
+
+    @GetMapping(value = "/recipe/{id}", produces = WireFormatConfiguration.SMILE_MEDIA_TYPE_VALUE)
+    public ResponseEntity<Recipe> getRecipeAsSmile(@PathVariable Integer id) {
+        return getRecipeInBinaryFormat(id, SMILE_MEDIA_TYPE);
+    }
+
+    private ResponseEntity<Recipe> getRecipeInBinaryFormat(Integer id, MediaType format) {
+        log.debug("Processing get recipe as {} with recipeId: {}", format, id);
         var recipe = recipesService.getRecipe(id);
-        log.info("Recipe successfully retrieved from database" + recipe.getId());
-        return ResponseEntity.status(HttpStatus.OK).body(recipe);
+        return ResponseEntity.status(HttpStatus.OK).contentType(format).eTag(eTag(recipe.getVersion(), format)).body(recipe);
     }
 
     @GetMapping("/recipes")
-    public ResponseEntity<List<Recipe>> getAllRecipes(){
-        log.info("Processing get all recipes");
-        val recipeList = recipesService.getAllRecipes();
-        log.info("All Recipe successfully retrieved from database");
-        return ResponseEntity.status(HttpStatus.OK).body(recipeList);
+    public ResponseEntity<List<Recipe>> getAllRecipes(@RequestParam(required = false) Integer afterId,
+                                                      @RequestParam(required = false, defaultValue = "100") Integer limit){
+        log.debug("Processing get all recipes after recipeId: {}", afterId);
+        val recipeList = recipesService.getAllRecipes(afterId, limit);
+        log.debug("Recipe page successfully retrieved from database");
+        var response = ResponseEntity.status(HttpStatus.OK);
+        if(recipeList.size() == limit)
+            response.header(NEXT_AFTER_ID_HEADER, String.valueOf(recipeList.get(recipeList.size() - 1).getId()));
+        return response.body(recipeList);
+        }
+
+    @GetMapping("/recipes/batch")
+    public ResponseEntity<List<RecipeLookupResult>> getRecipes(@RequestParam List<Integer> ids) {
+        log.debug("Processing get recipes for {} recipeIds", ids.size());
+        var lookupResults = recipesService.getRecipes(ids);
+        return ResponseEntity.status(HttpStatus.OK).body(lookupResults);
+        }
+
+    // Same lookup for id sets too long for a query string
+    @PostMapping("/recipes/batch")
+    public ResponseEntity<List<RecipeLookupResult>> getRecipesByBody(@RequestBody List<Integer> ids) {
+        return getRecipes(ids);
+        }
+
+    @GetMapping(value = "/recipes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllRecipes(@RequestParam(required = false) Integer afterId) {
+        log.debug("Processing stream all recipes after recipeId: {}", afterId);
+        StreamingResponseBody responseBody = outputStream -> recipesService.streamAllRecipes(afterId, recipe -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(recipe));
+                outputStream.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(responseBody);
+        }
+
+    @PostMapping(value = "/recipes/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<RecipeImportResult> importRecipesFromNdjson(InputStream inputStream) throws IOException {
+        log.debug("Processing NDJSON recipe import");
+        var importResult = recipeImportService.importNdjson(inputStream);
+        return ResponseEntity.status(HttpStatus.OK).body(importResult);
+        }
+
+    @PostMapping(value = "/recipes/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RecipeImportResult> importRecipes(InputStream inputStream) throws IOException {
+        log.debug("Processing JSON recipe import");
+        var importResult = recipeImportService.importJsonArray(inputStream);
+        return ResponseEntity.status(HttpStatus.OK).body(importResult);
+        }
+
+    @GetMapping("/recipes/export")
+    public ResponseEntity<StreamingResponseBody> exportRecipes(@RequestParam(required = false, defaultValue = "ndjson") String format,
+                                                               @RequestParam(required = false) Integer afterId,
+                                                               @RequestParam(required = false, defaultValue = "true") Boolean compress) {
+        var exportFormat = RecipeExportFormat.fromValue(format);
+        log.debug("Processing {} export of recipes after recipeId: {}", exportFormat, afterId);
+        StreamingResponseBody responseBody = outputStream ->
+                recipeExportService.export(Channels.newChannel(outputStream), exportFormat, compress, afterId);
+        var fileName = "recipes" + exportFormat.getFileExtension() + (compress ? ".gz" : "");
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType(compress ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(responseBody);
+        }
+
+    @PostMapping("/recipes/export/{fileName}")
+    public ResponseEntity<RecipeExportSummary> exportRecipesToFile(@PathVariable String fileName,
+                                                                   @RequestParam(required = false, defaultValue = "ndjson") String format,
+                                                                   @RequestParam(required = false, defaultValue = "true") Boolean compress) throws IOException {
+        var exportFormat = RecipeExportFormat.fromValue(format);
+        log.debug("Processing {} export of recipes to file: {}", exportFormat, fileName);
+        var exportSummary = recipeExportService.exportToFile(fileName, exportFormat, compress);
+        return ResponseEntity.status(HttpStatus.OK).body(exportSummary);
         }
 
     @PutMapping("/recipe")
-    public ResponseEntity<Recipe> modifyRecipe(@Valid @RequestBody Recipe recipe) {
-        log.info("Processing modify recipe ");
+    public ResponseEntity<Recipe> modifyRecipe(@Valid @RequestBody Recipe recipe,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Processing modify recipe with recipeId: {}", recipe.getId());
+        if(ifMatch != null)
+            recipe.setVersion(versionFromIfMatch(ifMatch));
         var modifiedRecipe = recipesService.modifyExistingRecipe(recipe);
-        log.info("Recipe successfully modified in database with recipeId: " + modifiedRecipe.getId());
-        return ResponseEntity.status(HttpStatus.OK).body(modifiedRecipe);
+        log.debug("Recipe successfully modified in database with recipeId: {}", modifiedRecipe.getId());
+        return ResponseEntity.status(HttpStatus.OK).eTag(eTag(modifiedRecipe)).body(modifiedRecipe);
+        }
+
+    @PatchMapping("/recipe/{id}")
+    public ResponseEntity<Recipe> patchRecipe(@PathVariable Integer id, @Valid @RequestBody RecipePatch recipePatch,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.debug("Processing partial update of recipe with recipeId: {}", id);
+        if(ifMatch != null)
+            recipePatch.setVersion(versionFromIfMatch(ifMatch));
+        var modifiedRecipe = recipesService.patchRecipe(id, recipePatch);
+        log.debug("Recipe successfully updated in database with recipeId: {}", modifiedRecipe.getId());
+        return ResponseEntity.status(HttpStatus.OK).eTag(eTag(modifiedRecipe)).body(modifiedRecipe);
         }
 
     @DeleteMapping("/recipe/{id}")
     public ResponseEntity<String> deleteRecipe(@PathVariable Integer id) {
-        log.info("Processing delete recipe ");
+        log.debug("Processing delete recipe with recipeId: {}", id);
         recipesService.deleteRecipe(id);
-        log.info("Recipe successfully deleted from database ");
+        log.debug("Recipe successfully deleted from database with recipeId: {}", id);
         return ResponseEntity.status(HttpStatus.OK).body("Requested recipe deleted from DB");
         }
 
     @GetMapping("/search/recipe")
     public ResponseEntity<List<Recipe>> searchRecipe(@RequestParam(required = false) String dishType, @RequestParam(required = false) Integer numberOfServing,
                                                @RequestParam(required = false) String ingredient, @RequestParam(required = false, defaultValue = "true") Boolean ingredientIncluded,
-                                               @RequestParam(required = false) String instructionSearch) {
-        log.info("Processing search recipe with ingredientIncluded as: " + ingredientIncluded);
-        var recipeList = recipesService.searchRecipe(dishType, numberOfServing, ingredient, ingredientIncluded, instructionSearch);
-        log.info("Recipe List successfully retrieved from database based on search criteria");
+                                               @RequestParam(required = false) String instructionSearch,
+                                               @RequestParam(required = false) List<String> includeIngredients,
+                                               @RequestParam(required = false) List<String> excludeIngredients) {
+        var criteria = buildSearchCriteria(dishType, numberOfServing, ingredient, ingredientIncluded, instructionSearch,
+                includeIngredients, excludeIngredients);
+        log.debug("Processing search recipe with criteria: {}", criteria);
+        var recipeList = recipesService.searchRecipe(criteria);
+        log.debug("Recipe List successfully retrieved based on search criteria");
         return ResponseEntity.status(HttpStatus.OK).body(recipeList);
     }
 
+    @GetMapping("/search/recipe/ranked")
+    public ResponseEntity<List<ScoredRecipe>> rankedSearchRecipe(@RequestParam String query,
+                                                                 @RequestParam(required = false, defaultValue = "10") Integer limit,
+                                                                 @RequestParam(required = false) String dishType, @RequestParam(required = false) Integer numberOfServing,
+                                                                 @RequestParam(required = false) List<String> includeIngredients,
+                                                                 @RequestParam(required = false) List<String> excludeIngredients) {
+        var criteria = buildSearchCriteria(dishType, numberOfServing, null, true, null,
+                includeIngredients, excludeIngredients);
+        log.debug("Processing ranked search for '{}' with criteria: {}", query, criteria);
+        var scoredRecipes = recipesService.rankedSearch(query, criteria, limit);
+        log.debug("Ranked search returned {} recipes", scoredRecipes.size());
+        return ResponseEntity.status(HttpStatus.OK).body(scoredRecipes);
+    }
+
+    @GetMapping("/search/recipe/facets")
+    public ResponseEntity<RecipeFacets> searchRecipeFacets(@RequestParam(required = false) String dishType, @RequestParam(required = false) Integer numberOfServing,
+                                                           @RequestParam(required = false) String ingredient, @RequestParam(required = false, defaultValue = "true") Boolean ingredientIncluded,
+                                                           @RequestParam(required = false) String instructionSearch,
+                                                           @RequestParam(required = false) List<String> includeIngredients,
+                                                           @RequestParam(required = false) List<String> excludeIngredients,
+                                                           @RequestParam(required = false) List<String> facets,
+                                                           @RequestParam(required = false, defaultValue = "10") Integer topIngredients) {
+        var criteria = buildSearchCriteria(dishType, numberOfServing, ingredient, ingredientIncluded, instructionSearch,
+                includeIngredients, excludeIngredients);
+        var requestedFacets = facets == null || facets.isEmpty() ? EnumSet.allOf(RecipeFacet.class)
+                : facets.stream().map(RecipeFacet::fromValue).collect(Collectors.toCollection(() -> EnumSet.noneOf(RecipeFacet.class)));
+        log.debug("Processing facet counts {} with criteria: {}", requestedFacets, criteria);
+        var recipeFacets = recipesService.searchFacets(criteria, requestedFacets, topIngredients);
+        return ResponseEntity.status(HttpStatus.OK).body(recipeFacets);
+    }
+
+    @GetMapping("/ingredients/suggest")
+    public ResponseEntity<List<IngredientSuggestion>> suggestIngredients(@RequestParam String prefix,
+                                                                         @RequestParam(required = false, defaultValue = "10") Integer limit,
+                                                                         @RequestParam(required = false, defaultValue = "true") Boolean fuzzy) {
+        var suggestions = recipesService.suggestIngredients(prefix, limit, fuzzy);
+        return ResponseEntity.status(HttpStatus.OK).body(suggestions);
+    }
+
+    @GetMapping("/analytics/recipes")
+    public ResponseEntity<List<RecipeGroupStats>> groupRecipes(@RequestParam List<String> groupBy) {
+        var dimensions = groupBy.stream().map(RecipeGroupBy::fromValue).collect(Collectors.toList());
+        log.debug("Processing recipe analytics grouped by {}", dimensions);
+        var groupStats = recipeAnalyticsService.groupRecipes(dimensions);
+        return ResponseEntity.status(HttpStatus.OK).body(groupStats);
+    }
+
+    static String eTag(Recipe recipe) {
+        return eTag(recipe.getVersion(), MediaType.APPLICATION_JSON);
+    }
+
+    static String eTag(Integer version, MediaType format) {
+        return "\"" + version + eTagSuffix(format) + "\"";
+    }
+
+    // JSON, the default format, is tagged by the bare version, other formats append their media subtype
+    private static String eTagSuffix(MediaType format) {
+        return MediaType.APPLICATION_JSON.isCompatibleWith(format) ? "" : "-" + format.getSubtype();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null)
+            return false;
+        for(String coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim();
+            if(!name.equalsIgnoreCase("gzip") && !name.equals("*"))
+                continue;
+            // "gzip;q=0" explicitly refuses gzip
+            return parameters.length < 2 || !parameters[1].trim().matches("(?i)q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    /**
+     * Whether an If-None-Match header names the given version of a recipe with one of the ETag suffixes of the
+     * representation being sent. As If-None-Match asks for, weak ETags compare equal to strong ones.
+     */
+    static boolean anyETagMatches(String ifNoneMatch, Integer version, String... suffixes) {
+        if(ifNoneMatch == null)
+            return false;
+        for(String eTag : ifNoneMatch.split(",")) {
+            eTag = eTag.trim();
+            if(eTag.equals("*"))
+                return true;
+            if(eTag.startsWith("W/"))
+                eTag = eTag.substring(2);
+            for(String suffix : suffixes) {
+                if(eTag.equals("\"" + version + suffix + "\""))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps an If-Match header onto the recipe version it expects. "*" only requires the recipe to exist; the ETag of
+     * any format or content coding of the recipe stands for its version. Weak or multiple ETags can never match the single
+     * strong ETag handed out by {@link #getRecipe}.
+     */
+    private static Integer versionFromIfMatch(String ifMatch) {
+        var eTag = ifMatch.trim();
+        if(eTag.equals("*"))
+            return null;
+        var matcher = RECIPE_ETAG.matcher(eTag);
+        if(matcher.matches()) {
+            try {
+                return Integer.valueOf(matcher.group(1));
+            } catch(NumberFormatException ex) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new PreconditionFailedException(ErrorConstants.RECIPE_VERSION_MISMATCH);
+    }
+
+    static RecipeSearchCriteria buildSearchCriteria(String dishType, Integer numberOfServing,
+                                                    String ingredient, Boolean ingredientIncluded,
+                                                    String instructionSearch,
+                                                    List<String> includeIngredients,
+                                                    List<String> excludeIngredients) {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType(dishType);
+        criteria.setNumberOfServing(numberOfServing);
+        criteria.setInstructionSearch(instructionSearch);
+        if(includeIngredients != null)
+            criteria.getIncludedIngredients().addAll(includeIngredients);
+        if(excludeIngredients != null)
+            criteria.getExcludedIngredients().addAll(excludeIngredients);
+        // Single ingredient parameters are still accepted and folded into the ingredient lists
+        if(ingredient != null) {
+            if(Boolean.FALSE.equals(ingredientIncluded))
+                criteria.getExcludedIngredients().add(ingredient);
+            else
+                criteria.getIncludedIngredients().add(ingredient);
+        }
+        return criteria;
+    }
+
 }
@@ -8,18 +8,22 @@ import javax.persistence.*;
 @Table(name = "INGREDIENT")
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 public class IngredientEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_sequence")
+    @SequenceGenerator(name = "ingredient_sequence", sequenceName = "INGREDIENT_SEQ", allocationSize = 50)
     @Column(name = "ID")
     private Integer id;
 
     @Column(name = "NAME")
     private String name;
 
+    // Id of the canonical name in INGREDIENT_NAME, resolved from NAME by IngredientDictionary before the ingredient is written
+    @Column(name = "NAME_ID")
+    private Integer nameId;
+
     @Column(name = "QUANTITY")
     private String quantity;
 
@@ -27,4 +31,10 @@ public class IngredientEntity {
     @JoinColumn(name = "RECIPE_ID")
     private RecipeEntity recipeEntity;
 
+    public IngredientEntity(Integer id, String name, String quantity, RecipeEntity recipeEntity) {
+        this.id = id;
+        this.name = name;
+        this.quantity = quantity;
+        this.recipeEntity = recipeEntity;
+    }
 }
@@ -0,0 +1,24 @@
+package com.recipes.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "INGREDIENT_NAME")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngredientNameEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingredient_name_sequence")
+    @SequenceGenerator(name = "ingredient_name_sequence", sequenceName = "INGREDIENT_NAME_SEQ", allocationSize = 50)
+    @Column(name = "ID")
+    private Integer id;
+
+    @Column(name = "NAME")
+    private String name;
+
+}
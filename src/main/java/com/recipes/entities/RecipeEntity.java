@@ -1,5 +1,7 @@
 package com.recipes.entities;
 
+import com.recipes.search.TextAnalyzer;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,7 +17,8 @@ import java.util.List;
 public class RecipeEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recipe_sequence")
+    @SequenceGenerator(name = "recipe_sequence", sequenceName = "RECIPE_SEQ", allocationSize = 50)
     @Column(name = "ID")
     private Integer id;
 
@@ -35,9 +38,23 @@ public class RecipeEntity {
     @Column(name = "INSTRUCTION")
     private String instruction;
 
-    @OneToMany(mappedBy = "recipeEntity", cascade = CascadeType.ALL)
+    // Derived from INSTRUCTION by setInstruction, see TextAnalyzer#instructionTokens
+    @Column(name = "INSTRUCTION_TOKENS")
+    @Setter(AccessLevel.NONE)
+    private String instructionTokens;
+
+    @Version
+    @Column(name = "VERSION")
+    private Integer version;
+
+    @OneToMany(mappedBy = "recipeEntity", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<IngredientEntity> ingredientEntityList = new ArrayList<>();
 
+    public void setInstruction(String instruction) {
+        this.instruction = instruction;
+        this.instructionTokens = TextAnalyzer.instructionTokens(instruction);
+    }
+
     @PrePersist
     private void onCreate() {
         creationDate = new Date();
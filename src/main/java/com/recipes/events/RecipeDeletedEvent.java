@@ -0,0 +1,10 @@
+package com.recipes.events;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class RecipeDeletedEvent {
+    private final Integer recipeId;
+}
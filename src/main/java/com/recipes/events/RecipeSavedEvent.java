@@ -0,0 +1,15 @@
+package com.recipes.events;
+
+import com.recipes.pojos.Recipe;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Date;
+
+@Getter
+@RequiredArgsConstructor
+public class RecipeSavedEvent {
+    private final Recipe recipe;
+    // Recipes do not expose their creation date, listeners needing it read it here
+    private final Date creationDate;
+}
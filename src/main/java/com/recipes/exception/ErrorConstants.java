@@ -3,5 +3,10 @@ package com.recipes.exception;
 public final class ErrorConstants {
     public static final String RECIPE_NOT_FOUND = "Recipe Not Found";
     public static final String INVALID_REQUEST = "Request Not Valid";
+    public static final String RECIPE_VERSION_MISMATCH = "Recipe was modified by another request";
+    public static final String IMPORT_MALFORMED_RECORD = "Malformed record";
+    public static final String IMPORT_MALFORMED_INPUT = "Malformed input, import stopped";
+    public static final String IMPORT_CONSTRAINT_VIOLATION = "Record violates a column length, required value or uniqueness constraint";
+    public static final String IMPORT_SAVE_FAILED = "Record could not be saved";
 
 }
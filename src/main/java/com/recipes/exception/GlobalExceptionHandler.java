@@ -2,12 +2,14 @@ package com.recipes.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.persistence.OptimisticLockException;
 import java.time.LocalDateTime;
 
 @RestControllerAdvice
@@ -26,9 +28,28 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildErrorResponse(ex, ex.getStatus());
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<Object> handlePreconditionFailedException(PreconditionFailedException ex){
+        return buildErrorResponse(ex, ex.getStatus());
+    }
+
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<Object> handleConflictException(ConflictException ex){
+        return buildErrorResponse(ex, ex.getStatus());
+    }
+
+    // A concurrent update committed between loading the recipe and writing it back
+    @ExceptionHandler({ObjectOptimisticLockingFailureException.class, OptimisticLockException.class})
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ResponseEntity<Object> handleOptimisticLockingFailureException(RuntimeException ex){
+        return handlePreconditionFailedException(new PreconditionFailedException(ErrorConstants.RECIPE_VERSION_MISMATCH));
+    }
+
     private ResponseEntity<Object> buildErrorResponse(Exception ex, HttpStatus status){
         ErrorResponse errorResponse = new ErrorResponse(status.value(), ex.getMessage(), LocalDateTime.now());
-        log.info("ErrorResponse built for error: " + errorResponse.getMessage());
+        log.info("ErrorResponse built for error: {}", errorResponse.getMessage());
         return ResponseEntity.status(status).body(errorResponse);
     }
 
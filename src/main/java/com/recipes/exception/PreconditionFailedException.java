@@ -0,0 +1,11 @@
+package com.recipes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class PreconditionFailedException extends ResponseStatusException {
+
+    public PreconditionFailedException(String message) {
+        super(HttpStatus.PRECONDITION_FAILED, message);
+    }
+}
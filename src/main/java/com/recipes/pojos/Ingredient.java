@@ -5,12 +5,16 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import javax.validation.constraints.NotBlank;
+
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Ingredient {
     private Integer id;
+    // Stored names are canonicalized into INGREDIENT_NAME, where a blank name would become a NULL on Oracle
+    @NotBlank(message = "Ingredient Name can not be null or empty")
     private String name;
     private String quantity;
 }
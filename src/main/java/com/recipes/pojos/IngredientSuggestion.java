@@ -0,0 +1,20 @@
+package com.recipes.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * A normalized ingredient name offered for autocompletion with the number of recipes using it.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngredientSuggestion {
+    private String name;
+    private long recipeCount;
+}
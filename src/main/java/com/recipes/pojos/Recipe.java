@@ -2,6 +2,7 @@ package com.recipes.pojos;
 
 import lombok.*;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,8 +20,10 @@ public class Recipe {
     @NotBlank(message = "Recipe Type can not be null or empty")
     private String type;
     private Integer servingCapacity;
+    @Valid
     private List<Ingredient> ingredientList = new ArrayList<>();
     @NotBlank(message = "Instructions can not be null or empty")
     private String instruction;
+    private Integer version;
 
 }
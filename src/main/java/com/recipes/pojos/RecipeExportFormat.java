@@ -0,0 +1,34 @@
+package com.recipes.pojos;
+
+import com.recipes.exception.BadRequestException;
+
+import java.util.Locale;
+
+public enum RecipeExportFormat {
+    NDJSON("application/x-ndjson", ".ndjson"),
+    CSV("text/csv", ".csv");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    RecipeExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static RecipeExportFormat fromValue(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch(IllegalArgumentException ex) {
+            throw new BadRequestException("Unsupported export format: " + value);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.recipes.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeExportSummary {
+    private String fileName;
+    private long exportedCount;
+    private Integer lastExportedId;
+}
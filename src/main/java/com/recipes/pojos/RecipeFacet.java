@@ -0,0 +1,27 @@
+package com.recipes.pojos;
+
+import com.recipes.exception.BadRequestException;
+
+public enum RecipeFacet {
+    DISH_TYPE("dishType"),
+    NUMBER_OF_SERVING("numberOfServing"),
+    INGREDIENT("ingredient");
+
+    private final String parameterName;
+
+    RecipeFacet(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    public static RecipeFacet fromValue(String value) {
+        for(RecipeFacet facet : values()) {
+            if(facet.parameterName.equalsIgnoreCase(value.trim()))
+                return facet;
+        }
+        throw new BadRequestException("Unsupported facet: " + value);
+    }
+}
@@ -0,0 +1,51 @@
+package com.recipes.pojos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Number of recipes matching a search, and per requested facet the number of those recipes carrying each value.
+ * Facets that were not requested are left out; values are ordered by descending count.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecipeFacets {
+    private long total;
+    private Map<String, Long> dishType;
+    private Map<Integer, Long> numberOfServing;
+    private Map<String, Long> ingredient;
+
+    /**
+     * Orders counts by descending count, then by value, keeping the {@code limit} largest. Zero counts are dropped.
+     * Only the kept entries are ever sorted, the rest is filtered through a heap of {@code limit} entries.
+     */
+    public static <K extends Comparable<K>> Map<K, Long> ranked(Map<K, Long> counts, int limit) {
+        Comparator<Map.Entry<K, Long>> ranking = Map.Entry.<K, Long>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        var top = new PriorityQueue<>(ranking.reversed());
+        for(Map.Entry<K, Long> count : counts.entrySet()) {
+            if(count.getValue() == 0)
+                continue;
+            top.add(count);
+            if(top.size() > limit)
+                top.poll();
+        }
+        var entries = new ArrayList<>(top);
+        entries.sort(ranking);
+        var ranked = new LinkedHashMap<K, Long>();
+        entries.forEach(entry -> ranked.put(entry.getKey(), entry.getValue()));
+        return ranked;
+    }
+}
@@ -0,0 +1,28 @@
+package com.recipes.pojos;
+
+import com.recipes.exception.BadRequestException;
+
+public enum RecipeGroupBy {
+    DISH_TYPE("dishType"),
+    NUMBER_OF_SERVING("numberOfServing"),
+    CREATION_MONTH("creationMonth"),
+    INGREDIENT("ingredient");
+
+    private final String parameterName;
+
+    RecipeGroupBy(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    public static RecipeGroupBy fromValue(String value) {
+        for(RecipeGroupBy groupBy : values()) {
+            if(groupBy.parameterName.equalsIgnoreCase(value.trim()))
+                return groupBy;
+        }
+        throw new BadRequestException("Unsupported group by: " + value);
+    }
+}
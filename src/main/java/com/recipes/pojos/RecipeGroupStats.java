@@ -0,0 +1,24 @@
+package com.recipes.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * One group of an analytics query: the grouped values by parameter name, the number of recipes in the group and
+ * their average number of ingredients.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeGroupStats {
+    private Map<String, Object> group;
+    private long recipes;
+    private double averageIngredients;
+}
@@ -0,0 +1,15 @@
+package com.recipes.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeImportFailure {
+    private long recordNumber;
+    private String message;
+}
@@ -0,0 +1,43 @@
+package com.recipes.pojos;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+public class RecipeImportResult {
+    public static final int DEFAULT_MAX_REPORTED_FAILURES = 1000;
+
+    private long importedCount;
+    private long failedCount;
+    /** Set once more records failed than {@link #failures} keeps; {@link #failedCount} is always the full total. */
+    private boolean failuresTruncated;
+    private List<RecipeImportFailure> failures = new ArrayList<>();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final int maxReportedFailures;
+
+    public RecipeImportResult() {
+        this(DEFAULT_MAX_REPORTED_FAILURES);
+    }
+
+    public RecipeImportResult(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    public void addFailure(long recordNumber, String message) {
+        failedCount++;
+        if(failures.size() < maxReportedFailures)
+            failures.add(new RecipeImportFailure(recordNumber, message));
+        else
+            failuresTruncated = true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.recipes.pojos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeLookupResult {
+    private Integer id;
+    private boolean found;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Recipe recipe;
+
+    public static RecipeLookupResult found(Recipe recipe) {
+        return new RecipeLookupResult(recipe.getId(), true, recipe);
+    }
+
+    public static RecipeLookupResult notFound(Integer id) {
+        return new RecipeLookupResult(id, false, null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.recipes.pojos;
+
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Pattern;
+import java.util.List;
+
+/**
+ * Partial recipe update, a field left out (null) keeps its stored value. A given ingredient list replaces the
+ * stored one the same way a full update does. A version, when given, has to match the stored one.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipePatch {
+
+    private static final String NOT_BLANK = "(?s).*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "Recipe Name can not be empty")
+    private String name;
+    @Pattern(regexp = NOT_BLANK, message = "Recipe Type can not be empty")
+    private String type;
+    private Integer servingCapacity;
+    @Valid
+    private List<Ingredient> ingredientList;
+    @Pattern(regexp = NOT_BLANK, message = "Instructions can not be empty")
+    private String instruction;
+    private Integer version;
+
+}
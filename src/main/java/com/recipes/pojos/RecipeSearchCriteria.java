@@ -0,0 +1,21 @@
+package com.recipes.pojos;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecipeSearchCriteria {
+
+    private String dishType;
+    private Integer numberOfServing;
+    private List<String> includedIngredients = new ArrayList<>();
+    private List<String> excludedIngredients = new ArrayList<>();
+    private String instructionSearch;
+
+}
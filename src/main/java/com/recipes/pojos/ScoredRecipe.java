@@ -0,0 +1,20 @@
+package com.recipes.pojos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * A recipe found by ranked text search with its BM25 relevance score; higher scores are better matches.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScoredRecipe {
+    private double score;
+    private Recipe recipe;
+}
@@ -0,0 +1,226 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.IngredientNameEntity;
+import com.recipes.search.TextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Interns ingredient names to the integer ids of INGREDIENT_NAME, keyed by the canonical form produced by
+ * {@link TextAnalyzer#normalizeIngredientName(String)}. The dictionary is read into memory at startup, so only a
+ * name never seen before costs a database round trip.
+ *
+ * Writers resolve the names of the ingredients they are about to save in their own transaction, before changing any
+ * entity: the names missing from memory are looked up with one statement per {@link #LOOKUP_CHUNK_SIZE} names and
+ * the ones still missing are inserted in one batch. Names read or inserted in a transaction only enter the in-memory
+ * dictionary once it has committed, so a rollback leaves no id behind that the table does not hold.
+ *
+ * Two writers inserting the same new name at the same time are settled by INGREDIENT_NAME_UK1: the later insert waits
+ * for the earlier transaction and fails once it has committed. The names are inserted with plain JDBC, so the failed
+ * statement is undone on its own and neither the writer's transaction nor its persistence context is lost; the names
+ * are then inserted one at a time and the ids of those another writer inserted are read back. Names are inserted in
+ * sorted order, so two writers never wait for each other in a cycle. Names are never deleted, so an id once cached
+ * can not go stale.
+ */
+@Component
+@Slf4j
+public class IngredientDictionary {
+
+    // Keeps every IN list well below Oracle's limit of 1000 expressions
+    static final int LOOKUP_CHUNK_SIZE = 500;
+
+    // Ids are taken from the sequence in blocks of its increment, the pooled-lo scheme of IngredientNameEntity
+    private static final int ID_BLOCK_SIZE = 50;
+    private static final String NEXT_ID_BLOCK = "SELECT INGREDIENT_NAME_SEQ.NEXTVAL FROM DUAL";
+    private static final String INSERT_NAME = "INSERT INTO INGREDIENT_NAME (ID, NAME) VALUES (?, ?)";
+
+    private final IngredientNameRepository ingredientNameRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+    public IngredientDictionary(IngredientNameRepository ingredientNameRepository, JdbcTemplate jdbcTemplate) {
+        this.ingredientNameRepository = ingredientNameRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        ingredientNameRepository.findAll().forEach(this::remember);
+        log.info("Ingredient dictionary loaded with {} names", ids.size());
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * The id of a name already stored, or null. A name missing from memory is looked up in the database, where
+     * another instance of the application may have added it.
+     */
+    public Integer find(String name) {
+        if(StringUtils.isBlank(name))
+            return null;
+        var canonicalName = TextAnalyzer.normalizeIngredientName(name);
+        var id = ids.get(canonicalName);
+        if(id != null)
+            return id;
+        var ingredientName = ingredientNameRepository.findByName(canonicalName);
+        ingredientName.ifPresent(found -> rememberOnceCommitted(List.of(found)));
+        return ingredientName.map(IngredientNameEntity::getId).orElse(null);
+    }
+
+    /**
+     * The id of a name held in memory, or null, without a database round trip. Names found through
+     * {@link #find(String)} are always held.
+     */
+    public Integer findCached(String name) {
+        return StringUtils.isBlank(name) ? null : ids.get(TextAnalyzer.normalizeIngredientName(name));
+    }
+
+    /**
+     * The canonical name of an id returned by this dictionary.
+     */
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Sets the name id of every ingredient from its name, inserting the names not stored yet.
+     */
+    @Transactional
+    public void assignNameIds(Collection<IngredientEntity> ingredientEntities) {
+        var nameIds = nameIds(ingredientEntities.stream().map(IngredientEntity::getName).collect(Collectors.toList()));
+        ingredientEntities.forEach(ingredientEntity -> ingredientEntity.setNameId(nameId(nameIds, ingredientEntity.getName())));
+    }
+
+    /**
+     * The ids of the given names keyed by canonical name, inserting the names not stored yet. Blank names have no id.
+     * New names are inserted with plain JDBC in the caller's transaction, without flushing the persistence context.
+     */
+    @Transactional
+    public Map<String, Integer> nameIds(Collection<String> names) {
+        var nameIds = new HashMap<String, Integer>();
+        var missingNames = new TreeSet<String>();
+        var readNames = new ArrayList<IngredientNameEntity>();
+        for(String name : names) {
+            if(StringUtils.isBlank(name))
+                continue;
+            var canonicalName = TextAnalyzer.normalizeIngredientName(name);
+            var id = ids.get(canonicalName);
+            if(id != null)
+                nameIds.put(canonicalName, id);
+            else
+                missingNames.add(canonicalName);
+        }
+        if(missingNames.isEmpty())
+            return nameIds;
+
+        readNames.addAll(findByNames(missingNames));
+        readNames.forEach(ingredientName -> {
+            nameIds.put(ingredientName.getName(), ingredientName.getId());
+            missingNames.remove(ingredientName.getName());
+        });
+
+        if(!missingNames.isEmpty()) {
+            var newNames = insertNames(missingNames);
+            newNames.forEach(ingredientName -> nameIds.put(ingredientName.getName(), ingredientName.getId()));
+            readNames.addAll(newNames);
+            log.debug("Inserted {} new ingredient names", newNames.size());
+        }
+        rememberOnceCommitted(readNames);
+        return nameIds;
+    }
+
+    private List<IngredientNameEntity> findByNames(Collection<String> names) {
+        var found = new ArrayList<IngredientNameEntity>();
+        var chunk = new ArrayList<String>(Math.min(names.size(), LOOKUP_CHUNK_SIZE));
+        for(String name : names) {
+            chunk.add(name);
+            if(chunk.size() == LOOKUP_CHUNK_SIZE) {
+                found.addAll(ingredientNameRepository.findByNameIn(chunk));
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty())
+            found.addAll(ingredientNameRepository.findByNameIn(chunk));
+        return found;
+    }
+
+    /**
+     * Inserts the sorted names in one batch. When another writer inserted some of them meanwhile, every name is
+     * inserted on its own instead, a name failing again is left to the other writer, and the ids are read back.
+     */
+    private List<IngredientNameEntity> insertNames(Collection<String> sortedNames) {
+        var newNames = new ArrayList<IngredientNameEntity>(sortedNames.size());
+        var nextId = 0L;
+        for(String name : sortedNames) {
+            if(newNames.size() % ID_BLOCK_SIZE == 0)
+                nextId = jdbcTemplate.queryForObject(NEXT_ID_BLOCK, Long.class);
+            newNames.add(new IngredientNameEntity((int) nextId++, name));
+        }
+        var rows = newNames.stream()
+                .map(ingredientName -> new Object[] {ingredientName.getId(), ingredientName.getName()})
+                .collect(Collectors.toList());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_NAME, rows);
+            return newNames;
+        } catch(DataIntegrityViolationException ex) {
+            log.debug("Ingredient names inserted concurrently, inserting them one at a time", ex);
+        }
+        for(Object[] row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_NAME, row);
+            } catch(DuplicateKeyException ex) {
+                // Inserted by the other writer, or already by the failed batch
+            }
+        }
+        return findByNames(sortedNames);
+    }
+
+    /**
+     * The id of a name in a map returned by {@link #nameIds(Collection)}.
+     */
+    public static Integer nameId(Map<String, Integer> nameIds, String name) {
+        return StringUtils.isBlank(name) ? null : nameIds.get(TextAnalyzer.normalizeIngredientName(name));
+    }
+
+    // A name read inside a transaction may be one that transaction inserted itself
+    private void rememberOnceCommitted(List<IngredientNameEntity> ingredientNames) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ingredientNames.forEach(this::remember);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ingredientNames.forEach(IngredientDictionary.this::remember);
+            }
+        });
+    }
+
+    private void remember(IngredientNameEntity ingredientName) {
+        ids.put(ingredientName.getName(), ingredientName.getId());
+        names.put(ingredientName.getId(), ingredientName.getName());
+    }
+}
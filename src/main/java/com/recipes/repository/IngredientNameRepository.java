@@ -0,0 +1,30 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientNameEntity;
+import com.recipes.pojos.IngredientSuggestion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngredientNameRepository extends JpaRepository<IngredientNameEntity, Integer> {
+
+    Optional<IngredientNameEntity> findByName(String name);
+
+    List<IngredientNameEntity> findByNameIn(Collection<String> names);
+
+    /**
+     * Most used canonical names starting with the prefix, counted over the recipes using them. Exact prefix only,
+     * used until the search index is ready.
+     */
+    @Query("SELECT new com.recipes.pojos.IngredientSuggestion(N.name, COUNT(DISTINCT I.recipeEntity.id)) " +
+            "FROM IngredientNameEntity N, IngredientEntity I WHERE I.nameId = N.id AND N.name LIKE CONCAT(:prefix, '%') " +
+            "GROUP BY N.name ORDER BY COUNT(DISTINCT I.recipeEntity.id) DESC, N.name")
+    List<IngredientSuggestion> findSuggestions(String prefix, Pageable pageable);
+
+}
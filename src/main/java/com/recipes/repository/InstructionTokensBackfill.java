@@ -0,0 +1,81 @@
+package com.recipes.repository;
+
+import com.recipes.search.TextAnalyzer;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fills RECIPE.INSTRUCTION_TOKENS for the recipes written before the column existed. The tokens come from
+ * {@link TextAnalyzer}, which SQL can not reproduce, so the recipes are read and updated in id pages of
+ * {@value #PAGE_SIZE}.
+ */
+public class InstructionTokensBackfill implements CustomTaskChange {
+
+    private static final int PAGE_SIZE = 500;
+
+    private int updatedRecipes;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        var connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try {
+            Map<Integer, String> instructions;
+            int lastId = Integer.MIN_VALUE;
+            do {
+                instructions = readPage(connection, lastId);
+                try (var update = connection.prepareStatement("UPDATE RECIPE SET INSTRUCTION_TOKENS = ? WHERE ID = ?")) {
+                    for(Map.Entry<Integer, String> instruction : instructions.entrySet()) {
+                        update.setString(1, TextAnalyzer.instructionTokens(instruction.getValue()));
+                        update.setInt(2, instruction.getKey());
+                        update.addBatch();
+                        lastId = instruction.getKey();
+                    }
+                    update.executeBatch();
+                }
+                updatedRecipes += instructions.size();
+            } while(instructions.size() == PAGE_SIZE);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Could not fill the recipe instruction tokens", e);
+        }
+    }
+
+    private static Map<Integer, String> readPage(Connection connection, int afterId) throws SQLException {
+        var instructions = new LinkedHashMap<Integer, String>();
+        try (var select = connection.prepareStatement("SELECT ID, INSTRUCTION FROM RECIPE WHERE ID > ? ORDER BY ID"
+                + " FETCH FIRST " + PAGE_SIZE + " ROWS ONLY")) {
+            select.setInt(1, afterId);
+            try (var resultSet = select.executeQuery()) {
+                while(resultSet.next())
+                    instructions.put(resultSet.getInt(1), resultSet.getString(2));
+            }
+        }
+        return instructions;
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Filled the instruction tokens of " + updatedRecipes + " recipes";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
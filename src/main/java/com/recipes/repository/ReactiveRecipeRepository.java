@@ -0,0 +1,188 @@
+package com.recipes.repository;
+
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.search.TextAnalyzer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking read access to recipes over R2DBC, mapping straight onto the {@link Recipe} and {@link Ingredient}
+ * POJOs of the blocking API. A recipe and its ingredients are read with one LEFT JOIN ordered by recipe id, and
+ * consecutive rows of the same recipe are folded into one {@link Recipe}.
+ *
+ * The connection pool is kept private to this repository on purpose: a {@code ConnectionFactory} bean in the context
+ * would switch off the JDBC DataSource auto-configuration the JPA side depends on.
+ */
+@Repository
+@ConditionalOnProperty(name = "recipes.reactive.enabled", havingValue = "true")
+public class ReactiveRecipeRepository {
+
+    private static final String SELECT_RECIPES = "SELECT R.ID, R.NAME, R.TYPE, R.SERVING_CAPACITY, R.INSTRUCTION, R.VERSION, "
+            + "I.ID AS INGREDIENT_ID, I.NAME AS INGREDIENT_NAME, I.QUANTITY AS INGREDIENT_QUANTITY "
+            + "FROM RECIPE R LEFT JOIN INGREDIENT I ON I.RECIPE_ID = R.ID ";
+    private static final String ORDER_BY = " ORDER BY R.ID, I.ID";
+
+    @Value("${recipes.reactive.r2dbc.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${recipes.reactive.r2dbc.pool-size:10}")
+    private int poolSize;
+
+    private ConnectionPool connectionPool;
+
+    private DatabaseClient databaseClient;
+
+    @PostConstruct
+    public void init() {
+        var options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(poolSize, 2))
+                .maxSize(poolSize)
+                .build());
+        databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    public Mono<Recipe> findById(Integer id) {
+        return toRecipes(databaseClient.sql(SELECT_RECIPES + "WHERE R.ID = :id" + ORDER_BY).bind("id", id)).next();
+    }
+
+    /**
+     * One page of recipes in id order, the reactive counterpart of {@link RecipeRepository#findRecipesAfter}.
+     */
+    public Flux<Recipe> findRecipesAfter(int afterId, int limit) {
+        return toRecipes(databaseClient.sql(SELECT_RECIPES
+                        + "WHERE R.ID IN (SELECT ID FROM RECIPE WHERE ID > :afterId ORDER BY ID FETCH FIRST :limit ROWS ONLY)"
+                        + ORDER_BY)
+                .bind("afterId", afterId)
+                .bind("limit", limit));
+    }
+
+    /**
+     * Every recipe after the given id, read page by page. The next page is only queried once the subscriber has
+     * asked for more recipes than the previous pages held, so a slow consumer holds back the database reads instead
+     * of buffering the table in memory.
+     */
+    public Flux<Recipe> streamRecipesAfter(int afterId, int pageSize) {
+        return findRecipesAfter(afterId, pageSize).collectList()
+                .expand(page -> page.size() < pageSize ? Mono.empty()
+                        : findRecipesAfter(page.get(page.size() - 1).getId(), pageSize).collectList())
+                .flatMapIterable(page -> page, 1);
+    }
+
+    /**
+     * Same filters as {@link RecipeSpecifications#matching(RecipeSearchCriteria)}, written as SQL: every word of the
+     * instruction search becomes a LIKE on the instruction tokens, required ingredients become EXISTS and excluded
+     * ingredients NOT EXISTS sub-selects against INGREDIENT, matched on the dictionary id of the name.
+     */
+    public Flux<Recipe> search(RecipeSearchCriteria criteria) {
+        var conditions = new ArrayList<String>();
+        var parameters = new LinkedHashMap<String, Object>();
+        if(criteria.getDishType() != null) {
+            conditions.add("R.TYPE = :dishType");
+            parameters.put("dishType", criteria.getDishType());
+        }
+        if(criteria.getNumberOfServing() != null) {
+            conditions.add("R.SERVING_CAPACITY = :servingCapacity");
+            parameters.put("servingCapacity", criteria.getNumberOfServing());
+        }
+        int wordIndex = 0;
+        for(String word : TextAnalyzer.tokenize(criteria.getInstructionSearch())) {
+            var parameterName = "instruction" + wordIndex++;
+            conditions.add("R.INSTRUCTION_TOKENS LIKE :" + parameterName);
+            parameters.put(parameterName, RecipeSpecifications.instructionWordPattern(word));
+        }
+        addIngredientConditions(conditions, parameters, "EXISTS", "included",
+                TextAnalyzer.normalizeIngredientNames(criteria.getIncludedIngredients()));
+        addIngredientConditions(conditions, parameters, "NOT EXISTS", "excluded",
+                TextAnalyzer.normalizeIngredientNames(criteria.getExcludedIngredients()));
+
+        var sql = SELECT_RECIPES + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions)) + ORDER_BY;
+        var spec = databaseClient.sql(sql);
+        for(Map.Entry<String, Object> parameter : parameters.entrySet())
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        return toRecipes(spec);
+    }
+
+    private static void addIngredientConditions(List<String> conditions, Map<String, Object> parameters,
+                                                String operator, String prefix, Iterable<String> normalizedNames) {
+        int index = 0;
+        for(String name : normalizedNames) {
+            var parameterName = prefix + index++;
+            conditions.add(operator + " (SELECT 1 FROM INGREDIENT WHERE RECIPE_ID = R.ID"
+                    + " AND NAME_ID = (SELECT ID FROM INGREDIENT_NAME WHERE NAME = :" + parameterName + "))");
+            parameters.put(parameterName, name);
+        }
+    }
+
+    private static Flux<Recipe> toRecipes(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.map((row, metadata) -> new RecipeRow(row)).all()
+                .bufferUntilChanged(recipeRow -> recipeRow.recipeId)
+                .map(ReactiveRecipeRepository::toRecipe);
+    }
+
+    private static Recipe toRecipe(List<RecipeRow> recipeRows) {
+        var recipe = recipeRows.get(0).recipe;
+        var ingredients = new ArrayList<Ingredient>(recipeRows.size());
+        for(RecipeRow recipeRow : recipeRows) {
+            if(recipeRow.ingredient != null)
+                ingredients.add(recipeRow.ingredient);
+        }
+        recipe.setIngredientList(ingredients);
+        return recipe;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    /**
+     * One row of the recipe/ingredient join, copied out of the R2DBC row while it is still valid.
+     */
+    private static class RecipeRow {
+        private final Integer recipeId;
+        private final Recipe recipe;
+        private final Ingredient ingredient;
+
+        private RecipeRow(Row row) {
+            this.recipeId = toInteger(row.get("ID"));
+            this.recipe = new Recipe(recipeId, row.get("NAME", String.class), row.get("TYPE", String.class),
+                    toInteger(row.get("SERVING_CAPACITY")), null, row.get("INSTRUCTION", String.class),
+                    toInteger(row.get("VERSION")));
+            var ingredientId = toInteger(row.get("INGREDIENT_ID"));
+            this.ingredient = ingredientId == null ? null
+                    : new Ingredient(ingredientId, row.get("INGREDIENT_NAME", String.class), row.get("INGREDIENT_QUANTITY", String.class));
+        }
+    }
+}
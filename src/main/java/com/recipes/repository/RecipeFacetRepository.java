@@ -0,0 +1,21 @@
+package com.recipes.repository;
+
+import com.recipes.pojos.RecipeSearchCriteria;
+
+import java.util.Map;
+
+/**
+ * Facet counts over the recipes matching a search, each computed by one GROUP BY statement so no recipe is read.
+ * Used until the search index is ready.
+ */
+public interface RecipeFacetRepository {
+
+    Map<String, Long> countByDishType(RecipeSearchCriteria criteria);
+
+    Map<Integer, Long> countByNumberOfServing(RecipeSearchCriteria criteria);
+
+    /**
+     * The {@code limit} canonical ingredient names used by most matching recipes, by descending count then by name.
+     */
+    Map<String, Long> countTopIngredients(RecipeSearchCriteria criteria, int limit);
+}
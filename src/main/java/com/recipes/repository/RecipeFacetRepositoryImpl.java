@@ -0,0 +1,89 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientNameEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.RecipeSearchCriteria;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The criteria are applied through {@link RecipeSpecifications#filtering}, so the counts cover the same recipes a
+ * database search returns.
+ */
+public class RecipeFacetRepositoryImpl implements RecipeFacetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Map<String, Long> countByDishType(RecipeSearchCriteria criteria) {
+        return countBy(criteria, "type");
+    }
+
+    @Override
+    public Map<Integer, Long> countByNumberOfServing(RecipeSearchCriteria criteria) {
+        return countBy(criteria, "servingCapacity");
+    }
+
+    @Override
+    public Map<String, Long> countTopIngredients(RecipeSearchCriteria criteria, int limit) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createTupleQuery();
+        var recipe = query.from(RecipeEntity.class);
+        var ingredient = recipe.join("ingredientEntityList");
+        var ingredientName = query.from(IngredientNameEntity.class);
+        Expression<String> name = ingredientName.get("name");
+        // A recipe listing the same name twice counts once
+        var count = criteriaBuilder.countDistinct(recipe);
+
+        var predicates = filter(criteria, recipe, query, criteriaBuilder);
+        predicates.add(criteriaBuilder.equal(ingredientName.get("id"), ingredient.get("nameId")));
+        query.multiselect(name, count)
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(name)
+                .orderBy(criteriaBuilder.desc(count), criteriaBuilder.asc(name));
+        return toCounts(entityManager.createQuery(query).setMaxResults(limit));
+    }
+
+    private <K> Map<K, Long> countBy(RecipeSearchCriteria criteria, String attribute) {
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createTupleQuery();
+        var recipe = query.from(RecipeEntity.class);
+        Expression<K> value = recipe.get(attribute);
+
+        var predicates = filter(criteria, recipe, query, criteriaBuilder);
+        predicates.add(criteriaBuilder.isNotNull(value));
+        query.multiselect(value, criteriaBuilder.count(recipe))
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(value);
+        return toCounts(entityManager.createQuery(query));
+    }
+
+    private static List<Predicate> filter(RecipeSearchCriteria criteria, Root<RecipeEntity> recipe,
+                                          CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        var predicates = new ArrayList<Predicate>();
+        var predicate = RecipeSpecifications.filtering(criteria).toPredicate(recipe, query, criteriaBuilder);
+        if(predicate != null)
+            predicates.add(predicate);
+        return predicates;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Map<K, Long> toCounts(TypedQuery<Tuple> query) {
+        var counts = new LinkedHashMap<K, Long>();
+        query.getResultList().forEach(row -> counts.put((K) row.get(0), row.get(1, Long.class)));
+        return counts;
+    }
+}
@@ -1,20 +1,64 @@
 package com.recipes.repository;
 
 import com.recipes.entities.RecipeEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Every read returning more than one recipe fetches the ingredients in the same statement (or, for keyset pages,
+ * in one follow-up statement), so mapping the result never triggers a lazy load per recipe.
+ */
 @Repository
-public interface RecipeRepository extends JpaRepository<RecipeEntity, Integer> {
-
-    @Query(nativeQuery = true , value = "SELECT DISTINCT R.* FROM " +
-            "RECIPE R " +
-            "WHERE (:type is null OR R.TYPE = :type) " +
-            "and (:servingCapacity is null OR R.SERVING_CAPACITY = :servingCapacity) " +
-            "and (:text is null OR R.INSTRUCTION like %:text%)")
-    List<RecipeEntity> findAllRecipesBySearchCriteria(String type, Integer servingCapacity,
-                                                      String text);
+public interface RecipeRepository extends JpaRepository<RecipeEntity, Integer>, JpaSpecificationExecutor<RecipeEntity>,
+        RecipeFacetRepository {
+
+    /**
+     * Search entry point, see {@link RecipeSpecifications#matching} for the criteria to SQL translation.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    List<RecipeEntity> findAll(Specification<RecipeEntity> specification);
+
+    @Override
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("SELECT DISTINCT R FROM RecipeEntity R LEFT JOIN FETCH R.ingredientEntityList ORDER BY R.id")
+    List<RecipeEntity> findAll();
+
+    @Query("SELECT R FROM RecipeEntity R LEFT JOIN FETCH R.ingredientEntityList WHERE R.id = :id")
+    Optional<RecipeEntity> findWithIngredientsById(Integer id);
+
+    @Query("SELECT R.id FROM RecipeEntity R WHERE R.id > :afterId ORDER BY R.id")
+    List<Integer> findRecipeIdsAfter(Integer afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("SELECT DISTINCT R FROM RecipeEntity R LEFT JOIN FETCH R.ingredientEntityList WHERE R.id IN :ids ORDER BY R.id")
+    List<RecipeEntity> findAllWithIngredientsByIdIn(Collection<Integer> ids);
+
+    /**
+     * Keyset page hydrated in two statements: the page of ids is limited in SQL, then the recipes and their
+     * ingredients are join fetched. Join fetching with a page limit directly would make Hibernate paginate in memory.
+     */
+    default List<RecipeEntity> findRecipesAfter(Integer afterId, Pageable pageable) {
+        var recipeIds = findRecipeIdsAfter(afterId, pageable);
+        return recipeIds.isEmpty() ? List.of() : findAllWithIngredientsByIdIn(recipeIds);
+    }
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT R FROM RecipeEntity R LEFT JOIN FETCH R.ingredientEntityList WHERE R.id > :afterId ORDER BY R.id")
+    Stream<RecipeEntity> streamRecipesAfter(Integer afterId);
 }
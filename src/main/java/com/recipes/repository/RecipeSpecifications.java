@@ -0,0 +1,100 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.IngredientNameEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.search.TextAnalyzer;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+
+/**
+ * Builds the database side of a recipe search. Every required ingredient becomes an EXISTS and every excluded
+ * ingredient a NOT EXISTS against INGREDIENT, so the ingredient filtering happens in SQL rather than on hydrated
+ * entities. Ingredients are matched on their dictionary id, the name itself is only compared once against the
+ * unique key of INGREDIENT_NAME.
+ */
+public final class RecipeSpecifications {
+
+    private RecipeSpecifications() {
+    }
+
+    public static Specification<RecipeEntity> matching(RecipeSearchCriteria criteria) {
+        return Specification.where(fetchIngredients()).and(filtering(criteria));
+    }
+
+    /**
+     * The criteria alone, without fetching the ingredients, for queries that count or group the matching recipes.
+     */
+    public static Specification<RecipeEntity> filtering(RecipeSearchCriteria criteria) {
+        Specification<RecipeEntity> specification = Specification.where(null);
+        if(criteria.getDishType() != null)
+            specification = specification.and(hasType(criteria.getDishType()));
+        if(criteria.getNumberOfServing() != null)
+            specification = specification.and(hasServingCapacity(criteria.getNumberOfServing()));
+        if(criteria.getInstructionSearch() != null)
+            specification = specification.and(instructionHasWords(criteria.getInstructionSearch()));
+        for(String ingredient : TextAnalyzer.normalizeIngredientNames(criteria.getIncludedIngredients()))
+            specification = specification.and(hasIngredient(ingredient));
+        for(String ingredient : TextAnalyzer.normalizeIngredientNames(criteria.getExcludedIngredients()))
+            specification = specification.and(Specification.not(hasIngredient(ingredient)));
+        return specification;
+    }
+
+    public static Specification<RecipeEntity> hasType(String type) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("type"), type);
+    }
+
+    public static Specification<RecipeEntity> hasServingCapacity(Integer servingCapacity) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("servingCapacity"), servingCapacity);
+    }
+
+    /**
+     * Every word of the text starts a word of the instruction, ignoring case, the same semantic as the search index.
+     * Matched against the stored instruction tokens, where a word starts after a space; words are runs of letters
+     * and digits, so they never carry a LIKE wildcard.
+     */
+    public static Specification<RecipeEntity> instructionHasWords(String text) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.and(TextAnalyzer.tokenize(text).stream()
+                .map(word -> criteriaBuilder.like(root.get("instructionTokens"), instructionWordPattern(word)))
+                .toArray(Predicate[]::new));
+    }
+
+    /**
+     * LIKE pattern for the instruction tokens of recipes with a word starting with the given search word.
+     */
+    public static String instructionWordPattern(String word) {
+        return "% " + word + "%";
+    }
+
+    /**
+     * @param normalizedName ingredient name as produced by {@link TextAnalyzer#normalizeIngredientName(String)}
+     */
+    public static Specification<RecipeEntity> hasIngredient(String normalizedName) {
+        return (root, query, criteriaBuilder) -> {
+            var nameIdQuery = query.subquery(Integer.class);
+            var ingredientName = nameIdQuery.from(IngredientNameEntity.class);
+            nameIdQuery.select(ingredientName.get("id"))
+                    .where(criteriaBuilder.equal(ingredientName.get("name"), normalizedName));
+
+            var subquery = query.subquery(Integer.class);
+            var ingredient = subquery.from(IngredientEntity.class);
+            subquery.select(ingredient.get("id"))
+                    .where(criteriaBuilder.equal(ingredient.get("recipeEntity"), root),
+                            criteriaBuilder.equal(ingredient.get("nameId"), nameIdQuery));
+            return criteriaBuilder.exists(subquery);
+        };
+    }
+
+    private static Specification<RecipeEntity> fetchIngredients() {
+        return (root, query, criteriaBuilder) -> {
+            if(!Long.class.equals(query.getResultType())) {
+                root.fetch("ingredientEntityList", JoinType.LEFT);
+                query.distinct(true);
+            }
+            return null;
+        };
+    }
+}
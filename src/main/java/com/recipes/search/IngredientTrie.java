@@ -0,0 +1,193 @@
+package com.recipes.search;
+
+import com.recipes.pojos.IngredientSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Prefix tree over normalized ingredient names weighted by the number of recipes using them. Every node keeps the
+ * largest weight found below it, so the most popular completions of a prefix are read best first without visiting the
+ * rest of its subtree. Children are held in sorted parallel arrays rather than maps to keep the nodes small.
+ *
+ * Not thread safe, {@link RecipeSearchIndex} guards it with its own lock.
+ */
+class IngredientTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final char[] NO_LABELS = new char[0];
+
+    private final Node root = new Node();
+
+    /**
+     * Sets the number of recipes using an ingredient; a weight of 0 removes the name.
+     */
+    void setWeight(String name, int weight) {
+        setWeight(root, name, 0, weight);
+    }
+
+    /**
+     * Up to {@code limit} names starting with the prefix, or with a prefix at most {@code maxEdits} insertions,
+     * deletions or substitutions away from it. Closer matches come first, then more popular ones.
+     */
+    List<IngredientSuggestion> suggest(String prefix, int maxEdits, int limit) {
+        var firstRow = new int[prefix.length() + 1];
+        Arrays.setAll(firstRow, i -> i);
+        var candidates = new ArrayList<Candidate>();
+        if(firstRow[prefix.length()] <= maxEdits)
+            candidates.add(new Candidate(root, firstRow[prefix.length()]));
+        else
+            collectCandidates(root, prefix, firstRow, maxEdits, maxEdits + 1, candidates);
+
+        // Subtrees may overlap, a name keeps the distance of its closest matching prefix
+        var distances = new HashMap<Node, Integer>();
+        for(Candidate candidate : candidates)
+            topWords(candidate.node, limit).forEach(word -> distances.merge(word, candidate.distance, Math::min));
+
+        Comparator<Map.Entry<Node, Integer>> ranking = Map.Entry.<Node, Integer>comparingByValue()
+                .thenComparing(entry -> -entry.getKey().weight)
+                .thenComparing(entry -> entry.getKey().name);
+        var suggestions = new ArrayList<IngredientSuggestion>(limit);
+        distances.entrySet().stream().sorted(ranking).limit(limit)
+                .forEach(entry -> suggestions.add(new IngredientSuggestion(entry.getKey().name, entry.getKey().weight)));
+        return suggestions;
+    }
+
+    /**
+     * Walks the tree computing one row of the prefix edit distance matrix per node. A node whose row ends within
+     * {@code maxEdits} matches the whole prefix; its subtree is taken unless an ancestor already matched as closely.
+     * Branches are cut once every cell of the row exceeds {@code maxEdits}.
+     */
+    private void collectCandidates(Node node, String prefix, int[] row, int maxEdits, int coveredDistance,
+                                   List<Candidate> candidates) {
+        int columns = prefix.length() + 1;
+        for(int c = 0; c < node.labels.length; c++) {
+            var label = node.labels[c];
+            var nextRow = new int[columns];
+            nextRow[0] = row[0] + 1;
+            int rowMin = nextRow[0];
+            for(int j = 1; j < columns; j++) {
+                int substitution = row[j - 1] + (prefix.charAt(j - 1) == label ? 0 : 1);
+                nextRow[j] = Math.min(substitution, Math.min(row[j], nextRow[j - 1]) + 1);
+                rowMin = Math.min(rowMin, nextRow[j]);
+            }
+            var child = node.children[c];
+            int distance = nextRow[columns - 1];
+            int childCovered = coveredDistance;
+            if(distance <= maxEdits && distance < coveredDistance) {
+                candidates.add(new Candidate(child, distance));
+                childCovered = distance;
+            }
+            if(rowMin <= maxEdits && rowMin < childCovered)
+                collectCandidates(child, prefix, nextRow, maxEdits, childCovered, candidates);
+        }
+    }
+
+    /**
+     * The {@code limit} heaviest names in a subtree, found best first by the subtree maxima.
+     */
+    private static List<Node> topWords(Node node, int limit) {
+        var words = new ArrayList<Node>(limit);
+        var queue = new PriorityQueue<Entry>(Comparator.comparingInt((Entry entry) -> -entry.priority));
+        queue.add(new Entry(node, false, node.maxWeight));
+        while(!queue.isEmpty() && words.size() < limit) {
+            var entry = queue.poll();
+            if(entry.word) {
+                words.add(entry.node);
+                continue;
+            }
+            if(entry.node.name != null)
+                queue.add(new Entry(entry.node, true, entry.node.weight));
+            for(Node child : entry.node.children)
+                queue.add(new Entry(child, false, child.maxWeight));
+        }
+        return words;
+    }
+
+    private static void setWeight(Node node, String name, int depth, int weight) {
+        if(depth == name.length()) {
+            node.name = weight > 0 ? name : null;
+            node.weight = weight;
+        } else {
+            var label = name.charAt(depth);
+            int c = Arrays.binarySearch(node.labels, label);
+            if(c < 0) {
+                if(weight == 0)
+                    return;
+                c = -c - 1;
+                node.insertChild(c, label);
+            }
+            var child = node.children[c];
+            setWeight(child, name, depth + 1, weight);
+            if(child.name == null && child.children.length == 0)
+                node.removeChild(c);
+        }
+        node.updateMaxWeight();
+    }
+
+    private static class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private String name;
+        private int weight;
+        private int maxWeight;
+
+        private void insertChild(int index, char label) {
+            var newLabels = new char[labels.length + 1];
+            var newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newLabels[index] = label;
+            newChildren[index] = new Node();
+            System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        private void removeChild(int index) {
+            var newLabels = new char[labels.length - 1];
+            var newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        private void updateMaxWeight() {
+            int max = weight;
+            for(Node child : children)
+                max = Math.max(max, child.maxWeight);
+            maxWeight = max;
+        }
+    }
+
+    private static class Candidate {
+        private final Node node;
+        private final int distance;
+
+        private Candidate(Node node, int distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    private static class Entry {
+        private final Node node;
+        private final boolean word;
+        private final int priority;
+
+        private Entry(Node node, boolean word, int priority) {
+            this.node = node;
+            this.word = word;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.recipes.search;
+
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.IngredientSuggestion;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipeFacets;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.pojos.ScoredRecipe;
+import com.recipes.repository.IngredientDictionary;
+import com.recipes.utils.ParallelRangeExecutor;
+import com.recipes.utils.RecipeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * In-process inverted index over recipe ids. Every searchable value (instruction token, normalized ingredient name,
+ * dish type, serving capacity) maps to a compressed bitmap of the recipe ids carrying it, and the mapped recipes are
+ * kept alongside so a search is answered without a database round trip; callers only ever get copies of them. Name
+ * and instruction are also indexed as stemmed terms with their frequencies for BM25 ranked search, and ingredient
+ * names are kept in a trie weighted by the number of recipes using them for autocompletion. Ingredients are keyed by
+ * the ids of their names in the {@link IngredientDictionary}, postings and documents only carry the int. Large result sets are
+ * materialized and ranked in id ranges on the {@link ParallelRangeExecutor}, which runs everything on the calling
+ * thread unless parallel search is enabled.
+ *
+ * The index is populated at startup by {@link RecipeSearchIndexLoader} and kept current from the recipe write events
+ * published by the service once their transaction has committed.
+ */
+@Component
+@Slf4j
+public class RecipeSearchIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    // BM25 term frequency saturation and document length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final IngredientDictionary ingredientDictionary;
+
+    private final ParallelRangeExecutor parallelRangeExecutor;
+
+    private final Map<Integer, IndexedRecipe> documents = new HashMap<>();
+    // Sorted so the tokens starting with a search word are one contiguous range
+    private final NavigableMap<String, RoaringBitmap> instructionPostings = new TreeMap<>();
+    private final Map<Integer, RoaringBitmap> ingredientPostings = new HashMap<>();
+    private final IngredientTrie ingredientTrie = new IngredientTrie();
+    private final Map<String, RoaringBitmap> dishTypePostings = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> servingCapacityPostings = new HashMap<>();
+    private final RoaringBitmap allRecipes = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> textPostings = new HashMap<>();
+    private long totalTextLength;
+    // Ingredient ids by descending posting cardinality, rebuilt by the first facet count after an ingredient change
+    private volatile int[] ingredientsByFrequency;
+
+    // Writes committed while the index is loaded, by recipe id, a null recipe for a deletion. Guarded by the write lock
+    private final Map<Integer, Recipe> pendingWrites = new HashMap<>();
+
+    private volatile boolean ready;
+
+    public RecipeSearchIndex(IngredientDictionary ingredientDictionary, ParallelRangeExecutor parallelRangeExecutor) {
+        this.ingredientDictionary = ingredientDictionary;
+        this.parallelRangeExecutor = parallelRangeExecutor;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replays the writes committed while the index was loaded over what the loader indexed, then lets the writes
+     * through directly. The loader may have read a row before a later write, or a recipe deleted since.
+     */
+    public void markReady() {
+        lock.writeLock().lock();
+        try {
+            pendingWrites.forEach((recipeId, recipe) -> {
+                if(recipe == null)
+                    removeDocument(recipeId);
+                else
+                    index(recipe);
+            });
+            pendingWrites.clear();
+            instructionPostings.values().forEach(RoaringBitmap::runOptimize);
+            ingredientPostings.values().forEach(RoaringBitmap::runOptimize);
+            dishTypePostings.values().forEach(RoaringBitmap::runOptimize);
+            servingCapacityPostings.values().forEach(RoaringBitmap::runOptimize);
+            textPostings.values().forEach(RoaringBitmap::runOptimize);
+            allRecipes.runOptimize();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe search index ready with {} recipes", size());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ahead of the other listeners, so a search keyed by a write generation advanced by the write sees the write
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onRecipeSaved(RecipeSavedEvent event) {
+        var recipe = event.getRecipe();
+        if(!deferUntilReady(recipe.getId(), RecipeMapper.INSTANCE.copyRecipe(recipe)))
+            index(recipe);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onRecipeDeleted(RecipeDeletedEvent event) {
+        if(!deferUntilReady(event.getRecipeId(), null))
+            remove(event.getRecipeId());
+    }
+
+    // Only the last write of a recipe is kept, so the pending writes never outgrow the index
+    private boolean deferUntilReady(Integer recipeId, Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            if(ready)
+                return false;
+            pendingWrites.put(recipeId, recipe);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Recipe recipe) {
+        var indexedRecipe = new IndexedRecipe(recipe, ingredientIds(recipe));
+        lock.writeLock().lock();
+        try {
+            removeDocument(recipe.getId());
+            int id = recipe.getId();
+            documents.put(id, indexedRecipe);
+            allRecipes.add(id);
+            indexedRecipe.instructionTerms.forEach(term -> addPosting(instructionPostings, term, id));
+            indexedRecipe.textTermFrequencies.keySet().forEach(term -> addPosting(textPostings, term, id));
+            totalTextLength += indexedRecipe.textLength;
+            for(int ingredientId : indexedRecipe.ingredientIds) {
+                addPosting(ingredientPostings, ingredientId, id);
+                updateIngredientWeight(ingredientId);
+            }
+            ingredientsByFrequency = null;
+            if(indexedRecipe.dishType != null)
+                addPosting(dishTypePostings, indexedRecipe.dishType, id);
+            if(indexedRecipe.servingCapacity != null)
+                addPosting(servingCapacityPostings, indexedRecipe.servingCapacity, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer recipeId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Required criteria are intersected smallest posting first and excluded ingredients are subtracted afterwards,
+     * so the work done is bounded by the sizes of the postings involved rather than by the number of recipes.
+     * Only a search without any required criterion starts from the full recipe set.
+     */
+    public List<Recipe> search(RecipeSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            var matches = matches(criteria);
+            var ranges = parallelRangeExecutor.mapRanges(matches, (start, end) -> {
+                var rangeRecipes = new ArrayList<Recipe>((int) matches.rangeCardinality(start, end));
+                forEachInRange(matches, start, end, id -> rangeRecipes.add(RecipeMapper.INSTANCE.copyRecipe(documents.get(id).recipe)));
+                return rangeRecipes;
+            });
+            if(ranges.size() == 1)
+                return ranges.get(0);
+            var recipes = new ArrayList<Recipe>(matches.getCardinality());
+            ranges.forEach(recipes::addAll);
+            return recipes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} recipes matching the criteria that best match the query over name and instruction, by BM25
+     * score, best first. Only recipes containing at least one query term are scored, and they are filtered through
+     * a heap of {@code limit} entries so that only the returned recipes are ever sorted.
+     */
+    public List<ScoredRecipe> rankedSearch(String query, RecipeSearchCriteria criteria, int limit) {
+        var queryTerms = new HashSet<>(TextAnalyzer.analyze(query));
+        lock.readLock().lock();
+        try {
+            var termIdfs = new HashMap<String, Double>();
+            var candidates = new RoaringBitmap();
+            for(String term : queryTerms) {
+                var posting = textPostings.get(term);
+                if(posting == null)
+                    continue;
+                termIdfs.put(term, idf(posting.getCardinality()));
+                candidates.or(posting);
+            }
+            if(candidates.isEmpty())
+                return new ArrayList<>();
+            candidates.and(matches(criteria));
+
+            double averageLength = (double) totalTextLength / documents.size();
+            Comparator<ScoredRecipe> ranking = Comparator.comparingDouble(ScoredRecipe::getScore).reversed()
+                    .thenComparing(scoredRecipe -> scoredRecipe.getRecipe().getId());
+            // Every id range keeps its own top entries, they are merged into the overall top afterwards
+            var rangeTops = parallelRangeExecutor.mapRanges(candidates, (start, end) -> {
+                var rangeTop = new PriorityQueue<>(ranking.reversed());
+                forEachInRange(candidates, start, end, id -> {
+                    var indexedRecipe = documents.get(id);
+                    offer(rangeTop, new ScoredRecipe(score(indexedRecipe, termIdfs, averageLength), indexedRecipe.recipe), limit);
+                });
+                return rangeTop;
+            });
+            var top = rangeTops.get(0);
+            for(int i = 1; i < rangeTops.size(); i++)
+                rangeTops.get(i).forEach(scoredRecipe -> offer(top, scoredRecipe, limit));
+            var scoredRecipes = new ArrayList<ScoredRecipe>(top.size());
+            top.forEach(scoredRecipe -> scoredRecipes.add(
+                    new ScoredRecipe(scoredRecipe.getScore(), RecipeMapper.INSTANCE.copyRecipe(scoredRecipe.getRecipe()))));
+            scoredRecipes.sort(ranking);
+            return scoredRecipes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<ScoredRecipe> top, ScoredRecipe scoredRecipe, int limit) {
+        top.add(scoredRecipe);
+        if(top.size() > limit)
+            top.poll();
+    }
+
+    private static void forEachInRange(RoaringBitmap ids, long start, long end, IntConsumer consumer) {
+        var iterator = ids.getIntIterator();
+        iterator.advanceIfNeeded((int) start);
+        while(iterator.hasNext() && Integer.toUnsignedLong(iterator.peekNext()) < end)
+            consumer.accept(iterator.next());
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double score(IndexedRecipe indexedRecipe, Map<String, Double> termIdfs, double averageLength) {
+        double lengthNorm = K1 * (1 - B + B * indexedRecipe.textLength / averageLength);
+        double score = 0;
+        for(Map.Entry<String, Double> termIdf : termIdfs.entrySet()) {
+            var frequency = indexedRecipe.textTermFrequencies.get(termIdf.getKey());
+            if(frequency != null)
+                score += termIdf.getValue() * frequency * (K1 + 1) / (frequency + lengthNorm);
+        }
+        return score;
+    }
+
+    /**
+     * Counts for the requested facets over the recipes matching the criteria. The matches are computed once, after
+     * that every facet value costs one intersection count against its posting, without materializing the
+     * intersection or touching a recipe. Only the {@code topIngredients} most frequent ingredients are returned, see
+     * {@link #topIngredients} for how the others are skipped.
+     */
+    public RecipeFacets facets(RecipeSearchCriteria criteria, Set<RecipeFacet> facets, int topIngredients) {
+        lock.readLock().lock();
+        try {
+            var matches = matches(criteria);
+            var recipeFacets = new RecipeFacets();
+            recipeFacets.setTotal(matches.getCardinality());
+            if(facets.contains(RecipeFacet.DISH_TYPE))
+                recipeFacets.setDishType(RecipeFacets.ranked(count(matches, dishTypePostings), Integer.MAX_VALUE));
+            if(facets.contains(RecipeFacet.NUMBER_OF_SERVING))
+                recipeFacets.setNumberOfServing(RecipeFacets.ranked(count(matches, servingCapacityPostings), Integer.MAX_VALUE));
+            if(facets.contains(RecipeFacet.INGREDIENT))
+                recipeFacets.setIngredient(RecipeFacets.ranked(topIngredients(matches, topIngredients), topIngredients));
+            return recipeFacets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <K> Map<K, Long> count(RoaringBitmap matches, Map<K, RoaringBitmap> postings) {
+        // Without any filter every posting is a subset of the matches and its cardinality is the count
+        var matchesAll = matches.getCardinality() == allRecipes.getCardinality();
+        var counts = new HashMap<K, Long>(postings.size() * 2);
+        postings.forEach((key, posting) -> counts.put(key,
+                (long) (matchesAll ? posting.getCardinality() : RoaringBitmap.andCardinality(matches, posting))));
+        return counts;
+    }
+
+    /**
+     * Counts of the most frequent ingredients among the matches, at least the {@code limit} largest. Few matches
+     * are counted from their documents. Otherwise postings are visited by descending cardinality, which bounds the
+     * count of every posting not visited yet, and the visit stops at the first one that can no longer beat the
+     * smallest count kept. Callers hold the read lock.
+     */
+    private Map<String, Long> topIngredients(RoaringBitmap matches, int limit) {
+        var ingredientCounts = new HashMap<String, Long>();
+        int matchCount = matches.getCardinality();
+        if(matchCount < ingredientPostings.size()) {
+            var ids = matches.getIntIterator();
+            while(ids.hasNext()) {
+                for(int ingredientId : documents.get(ids.next()).ingredientIds)
+                    ingredientCounts.merge(ingredientDictionary.name(ingredientId), 1L, Long::sum);
+            }
+            return ingredientCounts;
+        }
+
+        var matchesAll = matchCount == allRecipes.getCardinality();
+        var smallestKept = new PriorityQueue<Long>();
+        for(int ingredientId : ingredientsByFrequency()) {
+            var posting = ingredientPostings.get(ingredientId);
+            // Equal to the smallest kept count it could still win on the name
+            if(smallestKept.size() == limit && posting.getCardinality() < smallestKept.peek())
+                break;
+            long count = matchesAll ? posting.getCardinality() : RoaringBitmap.andCardinality(matches, posting);
+            ingredientCounts.put(ingredientDictionary.name(ingredientId), count);
+            smallestKept.add(count);
+            if(smallestKept.size() > limit)
+                smallestKept.poll();
+        }
+        return ingredientCounts;
+    }
+
+    // Readers may race to rebuild it, they all build the same array as writers are locked out
+    private int[] ingredientsByFrequency() {
+        var ingredientIds = ingredientsByFrequency;
+        if(ingredientIds == null) {
+            ingredientIds = ingredientPostings.entrySet().stream()
+                    .sorted(Comparator.comparingInt((Map.Entry<Integer, RoaringBitmap> posting) -> posting.getValue().getCardinality()).reversed())
+                    .mapToInt(Map.Entry::getKey)
+                    .toArray();
+            ingredientsByFrequency = ingredientIds;
+        }
+        return ingredientIds;
+    }
+
+    // Callers hold the read lock
+    private RoaringBitmap matches(RecipeSearchCriteria criteria) {
+        var requiredPostings = new ArrayList<RoaringBitmap>();
+        if(criteria.getDishType() != null)
+            requiredPostings.add(dishTypePostings.getOrDefault(criteria.getDishType(), EMPTY));
+        if(criteria.getNumberOfServing() != null)
+            requiredPostings.add(servingCapacityPostings.getOrDefault(criteria.getNumberOfServing(), EMPTY));
+        TextAnalyzer.tokenize(criteria.getInstructionSearch())
+                .forEach(word -> requiredPostings.add(instructionPosting(word)));
+        TextAnalyzer.normalizeIngredientNames(criteria.getIncludedIngredients())
+                .forEach(name -> requiredPostings.add(ingredientPosting(name)));
+
+        var matches = intersect(requiredPostings);
+        for(String name : TextAnalyzer.normalizeIngredientNames(criteria.getExcludedIngredients())) {
+            if(matches.isEmpty())
+                break;
+            matches.andNot(ingredientPosting(name));
+        }
+        return matches;
+    }
+
+    /**
+     * The most used ingredient names starting with the prefix, tolerating up to {@code maxEdits} typos in it; exact
+     * prefix matches rank before fuzzy ones.
+     */
+    public List<IngredientSuggestion> suggestIngredients(String prefix, int maxEdits, int limit) {
+        var normalizedPrefix = TextAnalyzer.normalizeIngredientName(prefix);
+        lock.readLock().lock();
+        try {
+            return ingredientTrie.suggest(normalizedPrefix, maxEdits, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recipes with an instruction token starting with the word, as the database side of the search matches them.
+     * The tokens with that prefix are read from the sorted map, so only their postings are visited.
+     */
+    private RoaringBitmap instructionPosting(String word) {
+        var postings = new ArrayList<RoaringBitmap>();
+        for(Map.Entry<String, RoaringBitmap> posting : instructionPostings.tailMap(word, true).entrySet()) {
+            if(!posting.getKey().startsWith(word))
+                break;
+            postings.add(posting.getValue());
+        }
+        if(postings.isEmpty())
+            return EMPTY;
+        return postings.size() == 1 ? postings.get(0) : RoaringBitmap.or(postings.iterator());
+    }
+
+    private void updateIngredientWeight(int ingredientId) {
+        var posting = ingredientPostings.get(ingredientId);
+        ingredientTrie.setWeight(ingredientDictionary.name(ingredientId), posting == null ? 0 : posting.getCardinality());
+    }
+
+    // Any id in the postings came from the dictionary, so a name it does not hold in memory has no posting
+    private RoaringBitmap ingredientPosting(String normalizedName) {
+        var ingredientId = ingredientDictionary.findCached(normalizedName);
+        return ingredientId == null ? EMPTY : ingredientPostings.getOrDefault(ingredientId, EMPTY);
+    }
+
+    /**
+     * The distinct name ids of the recipe's ingredients. Indexed recipes are saved ones, so every name is in the
+     * dictionary; resolved before the write lock is taken, as a name missing from memory costs a database lookup.
+     */
+    private int[] ingredientIds(Recipe recipe) {
+        var ids = new HashSet<Integer>();
+        if(recipe.getIngredientList() != null) {
+            for(Ingredient ingredient : recipe.getIngredientList()) {
+                var id = ingredientDictionary.find(ingredient.getName());
+                if(id != null)
+                    ids.add(id);
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private RoaringBitmap intersect(List<RoaringBitmap> postings) {
+        if(postings.isEmpty())
+            return allRecipes.clone();
+
+        // Smallest posting first keeps every intermediate result no larger than the most selective criterion
+        postings.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        var result = postings.get(0).clone();
+        for(int i = 1; i < postings.size() && !result.isEmpty(); i++)
+            result.and(postings.get(i));
+        return result;
+    }
+
+    private void removeDocument(Integer recipeId) {
+        var indexedRecipe = documents.remove(recipeId);
+        if(indexedRecipe == null)
+            return;
+        int id = recipeId;
+        allRecipes.remove(id);
+        indexedRecipe.instructionTerms.forEach(term -> removePosting(instructionPostings, term, id));
+        indexedRecipe.textTermFrequencies.keySet().forEach(term -> removePosting(textPostings, term, id));
+        totalTextLength -= indexedRecipe.textLength;
+        for(int ingredientId : indexedRecipe.ingredientIds) {
+            removePosting(ingredientPostings, ingredientId, id);
+            updateIngredientWeight(ingredientId);
+        }
+        ingredientsByFrequency = null;
+        if(indexedRecipe.dishType != null)
+            removePosting(dishTypePostings, indexedRecipe.dishType, id);
+        if(indexedRecipe.servingCapacity != null)
+            removePosting(servingCapacityPostings, indexedRecipe.servingCapacity, id);
+    }
+
+    private static <K> void addPosting(Map<K, RoaringBitmap> postings, K key, int id) {
+        postings.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+    }
+
+    private static <K> void removePosting(Map<K, RoaringBitmap> postings, K key, int id) {
+        var posting = postings.get(key);
+        if(posting == null)
+            return;
+        posting.remove(id);
+        if(posting.isEmpty())
+            postings.remove(key);
+    }
+
+    private static class IndexedRecipe {
+        private final Recipe recipe;
+        private final Set<String> instructionTerms;
+        private final int[] ingredientIds;
+        private final String dishType;
+        private final Integer servingCapacity;
+        private final Map<String, Integer> textTermFrequencies = new HashMap<>();
+        private final int textLength;
+
+        private IndexedRecipe(Recipe recipe, int[] ingredientIds) {
+            // The caller keeps its own instance, the indexed recipe can not change behind the postings
+            this.recipe = RecipeMapper.INSTANCE.copyRecipe(recipe);
+            this.instructionTerms = new HashSet<>(TextAnalyzer.tokenize(recipe.getInstruction()));
+            var textTerms = TextAnalyzer.analyze(recipe.getName());
+            textTerms.addAll(TextAnalyzer.analyze(recipe.getInstruction()));
+            textTerms.forEach(term -> textTermFrequencies.merge(term, 1, Integer::sum));
+            this.textLength = textTerms.size();
+            this.dishType = recipe.getType();
+            this.servingCapacity = recipe.getServingCapacity();
+            this.ingredientIds = ingredientIds;
+        }
+    }
+}
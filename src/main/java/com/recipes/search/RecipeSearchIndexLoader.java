@@ -0,0 +1,33 @@
+package com.recipes.search;
+
+import com.recipes.service.RecipesService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the search index from the database once the application has started. Until the index is marked ready
+ * searches keep going to the database, and the index holds back the writes committed meanwhile to replay them over
+ * the loaded recipes.
+ */
+@Component
+@ConditionalOnProperty(name = "recipes.search.index.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class RecipeSearchIndexLoader {
+
+    @Autowired
+    private RecipesService recipesService;
+
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        log.info("Building recipe search index from database");
+        recipesService.streamAllRecipes(null, recipeSearchIndex::index);
+        recipeSearchIndex.markReady();
+    }
+}
@@ -0,0 +1,107 @@
+package com.recipes.search;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class TextAnalyzer {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "but", "by", "for",
+            "from", "if", "in", "into", "is", "it", "of", "on", "or", "so", "some", "than", "that", "the", "then",
+            "there", "these", "this", "to", "until", "was", "when", "while", "will", "with", "you", "your");
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        var tokens = new ArrayList<String>();
+        if(text == null)
+            return tokens;
+        for(String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if(!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * The distinct tokens of an instruction separated by single spaces, with a leading and a trailing space, as stored
+     * in RECIPE.INSTRUCTION_TOKENS. A word starting a token is then found with {@code LIKE '% word%'}.
+     */
+    public static String instructionTokens(String instruction) {
+        return " " + String.join(" ", new LinkedHashSet<>(tokenize(instruction))) + " ";
+    }
+
+    /**
+     * Terms for ranked search: the tokens without stop words, each reduced to its stem so that "boiled", "boiling" and
+     * "boils" all match "boil".
+     */
+    public static List<String> analyze(String text) {
+        var terms = new ArrayList<String>();
+        for(String token : tokenize(text)) {
+            if(!STOP_WORDS.contains(token))
+                terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    /**
+     * Light English stemmer stripping plural, past tense, gerund and adverb suffixes. Stems shorter than three
+     * letters are left alone, and a doubled final consonant left by a stripped suffix is undoubled ("chopped").
+     */
+    static String stem(String token) {
+        if(token.length() > 4 && token.endsWith("ies"))
+            return token.substring(0, token.length() - 3) + "y";
+        if(token.length() > 4 && token.endsWith("oes"))
+            return token.substring(0, token.length() - 2);
+        if(token.length() > 3 && token.endsWith("es") && endsWithSibilant(token, token.length() - 2))
+            return token.substring(0, token.length() - 2);
+        if(token.length() > 3 && token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us"))
+            return token.substring(0, token.length() - 1);
+        for(String suffix : new String[] {"ing", "ed", "ly"}) {
+            if(token.length() - suffix.length() >= 3 && token.endsWith(suffix))
+                return undouble(token.substring(0, token.length() - suffix.length()));
+        }
+        return token;
+    }
+
+    private static boolean endsWithSibilant(String token, int end) {
+        var stem = token.substring(0, end);
+        return stem.endsWith("s") || stem.endsWith("x") || stem.endsWith("z") || stem.endsWith("ch") || stem.endsWith("sh");
+    }
+
+    private static String undouble(String stem) {
+        int last = stem.length() - 1;
+        var c = stem.charAt(last);
+        if(stem.charAt(last - 1) == c && "lsz".indexOf(c) < 0 && "aeiou".indexOf(c) < 0)
+            return stem.substring(0, last);
+        return stem;
+    }
+
+    /**
+     * Canonical form of an ingredient name, as stored in INGREDIENT_NAME: trimmed, runs of whitespace collapsed to a
+     * single space and lower cased.
+     */
+    public static String normalizeIngredientName(String ingredient) {
+        return WHITESPACE.matcher(ingredient.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    public static Set<String> normalizeIngredientNames(Collection<String> ingredients) {
+        var normalizedNames = new LinkedHashSet<String>();
+        if(ingredients != null) {
+            for(String ingredient : ingredients) {
+                if(StringUtils.isNotBlank(ingredient))
+                    normalizedNames.add(normalizeIngredientName(ingredient));
+            }
+        }
+        return normalizedNames;
+    }
+}
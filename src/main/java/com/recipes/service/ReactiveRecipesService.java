@@ -0,0 +1,57 @@
+package com.recipes.service;
+
+import com.recipes.exception.BadRequestException;
+import com.recipes.exception.ErrorConstants;
+import com.recipes.exception.RecipeNotFoundException;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.repository.ReactiveRecipeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive variant of the read side of {@link RecipesService}. Nothing here blocks a thread while waiting for the
+ * database; results are handed out as they are read, at the pace the subscriber requests them.
+ */
+@Service
+@ConditionalOnProperty(name = "recipes.reactive.enabled", havingValue = "true")
+public class ReactiveRecipesService {
+
+    @Autowired
+    private ReactiveRecipeRepository reactiveRecipeRepository;
+
+    @Value("${recipes.reactive.stream-page-size:500}")
+    private int streamPageSize;
+
+    public Mono<Recipe> getRecipe(Integer id) {
+        return reactiveRecipeRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND)));
+    }
+
+    public Flux<Recipe> getAllRecipes(Integer afterId, int limit) {
+        if(limit < 1 || limit > RecipesService.MAX_PAGE_SIZE)
+            return Flux.error(new BadRequestException("Page size must be between 1 and " + RecipesService.MAX_PAGE_SIZE));
+        return reactiveRecipeRepository.findRecipesAfter(afterId == null ? 0 : afterId, limit);
+    }
+
+    public Flux<Recipe> streamAllRecipes(Integer afterId) {
+        return reactiveRecipeRepository.streamRecipesAfter(afterId == null ? 0 : afterId, streamPageSize);
+    }
+
+    /**
+     * At most {@code limit} matching recipes; rows past the limit are not requested from the database.
+     */
+    public Flux<Recipe> searchRecipe(RecipeSearchCriteria criteria, int limit) {
+        if(limit < 1 || limit > RecipesService.MAX_PAGE_SIZE)
+            return Flux.error(new BadRequestException("Page size must be between 1 and " + RecipesService.MAX_PAGE_SIZE));
+        return reactiveRecipeRepository.search(criteria).take(limit, true);
+    }
+
+    public Flux<Recipe> streamSearchRecipe(RecipeSearchCriteria criteria) {
+        return reactiveRecipeRepository.search(criteria);
+    }
+}
@@ -0,0 +1,71 @@
+package com.recipes.service;
+
+import com.recipes.analytics.RecipeColumnStore;
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.exception.BadRequestException;
+import com.recipes.pojos.RecipeGroupBy;
+import com.recipes.pojos.RecipeGroupStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Group-by and count queries over the recipe catalogue, answered from the columnar {@link RecipeColumnStore}. Until
+ * the store has been loaded a temporary store is filled from the recipe cursor for the query, which is as slow as
+ * reading every recipe but gives the same answer.
+ */
+@Service
+@Slf4j
+public class RecipeAnalyticsService {
+
+    public static final String ANALYTICS_METRIC = "recipes.analytics";
+
+    @Autowired
+    private RecipesService recipesService;
+
+    @Autowired
+    private RecipeColumnStore recipeColumnStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public List<RecipeGroupStats> groupRecipes(List<RecipeGroupBy> groupBy) {
+        if(groupBy.isEmpty())
+            throw new BadRequestException("At least one group by dimension is required");
+        var dimensions = new ArrayList<>(new LinkedHashSet<>(groupBy));
+        var sample = Timer.start(meterRegistry);
+        var useStore = recipeColumnStore.isReady();
+        var columnStore = recipeColumnStore;
+        if(!useStore) {
+            columnStore = new RecipeColumnStore();
+            loadColumns(columnStore);
+        }
+        var groupStats = columnStore.group(dimensions);
+        sample.stop(Timer.builder(ANALYTICS_METRIC).description("Recipe analytics query latency")
+                .tags("source", useStore ? "columns" : "database",
+                        "groupBy", dimensions.stream().map(RecipeGroupBy::getParameterName).collect(Collectors.joining("+")))
+                .register(meterRegistry));
+        return groupStats;
+    }
+
+    public void loadColumns(RecipeColumnStore columnStore) {
+        recipesService.streamAllRecipeEntities(null, recipeEntity -> load(columnStore, recipeEntity));
+    }
+
+    private static void load(RecipeColumnStore columnStore, RecipeEntity recipeEntity) {
+        var ingredients = recipeEntity.getIngredientEntityList().stream()
+                .map(IngredientEntity::getName)
+                .collect(Collectors.toList());
+        var creationTime = recipeEntity.getCreationDate() == null ? 0L : recipeEntity.getCreationDate().getTime();
+        columnStore.load(recipeEntity.getId(), recipeEntity.getType(), recipeEntity.getServingCapacity(), creationTime,
+                ingredients);
+    }
+}
@@ -0,0 +1,168 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipes.exception.BadRequestException;
+import com.recipes.exception.ConflictException;
+import com.recipes.pojos.RecipeExportFormat;
+import com.recipes.pojos.RecipeExportSummary;
+import com.recipes.repository.RecipeRepository;
+import com.recipes.utils.RecipeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Exports the recipe catalogue over the forward-only recipe/ingredient cursor. File exports record a checkpoint (last
+ * exported recipe id and file length) every {@code recipes.export.checkpoint-interval} recipes; running the same
+ * export again after a failure truncates the file back to the checkpoint and carries on after that recipe id. Only one
+ * export at a time may write a given file.
+ */
+@Service
+@Slf4j
+public class RecipeExportService {
+
+    private static final RecipeMapper RECIPE_MAPPER = RecipeMapper.INSTANCE;
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,99}");
+    private static final String CHECKPOINT_LAST_ID = "lastExportedId";
+    private static final String CHECKPOINT_OFFSET = "offset";
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${recipes.export.directory}")
+    private String exportDirectory;
+
+    @Value("${recipes.export.checkpoint-interval:10000}")
+    private int checkpointInterval;
+
+    @Transactional(readOnly = true)
+    public RecipeExportSummary export(WritableByteChannel channel, RecipeExportFormat format, boolean compress,
+                                      Integer afterId) throws IOException {
+        try (var writer = new RecipeExportWriter(channel, format, compress, objectMapper)) {
+            writer.writeHeader();
+            exportRecipes(writer, afterId, null);
+            log.info("Exported {} recipes up to recipeId: {}", writer.getCount(), writer.getLastId());
+            return new RecipeExportSummary(null, writer.getCount(), writer.getLastId());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public RecipeExportSummary exportToFile(String fileName, RecipeExportFormat format, boolean compress) throws IOException {
+        if(!FILE_NAME.matcher(fileName).matches())
+            throw new BadRequestException("Export file name may only contain letters, digits, '.', '_' and '-'");
+
+        var directory = Paths.get(exportDirectory);
+        Files.createDirectories(directory);
+        var file = directory.resolve(fileName + format.getFileExtension() + (compress ? ".gz" : ""));
+        var checkpointFile = directory.resolve(file.getFileName() + ".checkpoint");
+
+        RecipeExportSummary summary;
+        try (var fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             var exportLock = lockExport(fileChannel, file)) {
+            // The checkpoint belongs to the export holding the lock, it is only read once the lock is taken
+            var checkpoint = readCheckpoint(checkpointFile);
+            Integer afterId = checkpoint.getProperty(CHECKPOINT_LAST_ID) == null ? null : Integer.valueOf(checkpoint.getProperty(CHECKPOINT_LAST_ID));
+            long offset = Long.parseLong(checkpoint.getProperty(CHECKPOINT_OFFSET, "0"));
+            if(offset > 0)
+                log.info("Resuming export to {} after recipeId: {}", file, afterId);
+            fileChannel.truncate(offset);
+            fileChannel.position(offset);
+            try (var writer = new RecipeExportWriter(fileChannel, format, compress, objectMapper)) {
+                if(offset == 0)
+                    writer.writeHeader();
+                exportRecipes(writer, afterId, () -> {
+                    writer.checkpoint();
+                    fileChannel.force(false);
+                    writeCheckpoint(checkpointFile, writer.getLastId(), fileChannel.position());
+                });
+                summary = new RecipeExportSummary(file.getFileName().toString(), writer.getCount(),
+                        writer.getLastId() == null ? afterId : writer.getLastId());
+            }
+            fileChannel.force(true);
+            Files.deleteIfExists(checkpointFile);
+        }
+        log.info("Exported {} recipes to {}", summary.getExportedCount(), file);
+        return summary;
+    }
+
+    /**
+     * Two exports writing the same file would interleave their records and checkpoints, so a second one is refused
+     * while the first holds the file lock. The lock is taken on the file itself and so also covers other instances
+     * exporting into a shared directory.
+     */
+    private static FileLock lockExport(FileChannel fileChannel, Path file) throws IOException {
+        try {
+            var exportLock = fileChannel.tryLock();
+            if(exportLock != null)
+                return exportLock;
+        } catch(OverlappingFileLockException ex) {
+            // Held by another export running in this JVM
+        }
+        throw new ConflictException("An export to " + file.getFileName() + " is already running");
+    }
+
+    private void exportRecipes(RecipeExportWriter writer, Integer afterId, Checkpoint checkpoint) throws IOException {
+        try (var recipeEntities = recipeRepository.streamRecipesAfter(afterId == null ? 0 : afterId)) {
+            var iterator = recipeEntities.iterator();
+            while(iterator.hasNext()) {
+                var recipeEntity = iterator.next();
+                writer.write(RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity));
+                entityManager.detach(recipeEntity);
+                if(checkpoint != null && writer.getCount() % checkpointInterval == 0)
+                    checkpoint.record();
+            }
+        }
+    }
+
+    private static Properties readCheckpoint(Path checkpointFile) throws IOException {
+        var checkpoint = new Properties();
+        if(Files.exists(checkpointFile)) {
+            try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+                checkpoint.load(reader);
+            }
+        }
+        return checkpoint;
+    }
+
+    private static void writeCheckpoint(Path checkpointFile, Integer lastExportedId, long offset) throws IOException {
+        var checkpoint = new Properties();
+        checkpoint.setProperty(CHECKPOINT_LAST_ID, String.valueOf(lastExportedId));
+        checkpoint.setProperty(CHECKPOINT_OFFSET, String.valueOf(offset));
+        var temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            checkpoint.store(writer, null);
+        }
+        Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @FunctionalInterface
+    private interface Checkpoint {
+        void record() throws IOException;
+    }
+}
@@ -0,0 +1,157 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeExportFormat;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes recipes as NDJSON or CSV into a fixed size buffer that is drained to a channel whenever it fills up, so
+ * memory use does not depend on the number of recipes and a slow reader on the other end of the channel slows the
+ * export down instead of piling up data. With compression every checkpoint closes the current gzip member; members
+ * are concatenated, which keeps the output a valid gzip stream even when an export is resumed.
+ */
+public class RecipeExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] NEWLINE = {'\n'};
+    private static final String CSV_HEADER = "RECIPE_ID,NAME,TYPE,SERVING_CAPACITY,INSTRUCTION,INGREDIENT_ID,INGREDIENT_NAME,INGREDIENT_QUANTITY\n";
+
+    private final WritableByteChannel target;
+    private final RecipeExportFormat format;
+    private final boolean compress;
+    private final ObjectWriter jsonWriter;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final OutputStream targetStream;
+
+    private GZIPOutputStream gzipStream;
+    private WritableByteChannel sink;
+    private boolean memberStarted;
+
+    @Getter
+    private long count;
+    @Getter
+    private Integer lastId;
+
+    public RecipeExportWriter(WritableByteChannel target, RecipeExportFormat format, boolean compress, ObjectMapper objectMapper) {
+        this.target = target;
+        this.format = format;
+        this.compress = compress;
+        this.jsonWriter = objectMapper.writerFor(Recipe.class);
+        this.targetStream = Channels.newOutputStream(target);
+    }
+
+    public void writeHeader() throws IOException {
+        if(format == RecipeExportFormat.CSV)
+            put(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void write(Recipe recipe) throws IOException {
+        if(format == RecipeExportFormat.CSV) {
+            put(toCsv(recipe).getBytes(StandardCharsets.UTF_8));
+        } else {
+            put(jsonWriter.writeValueAsBytes(recipe));
+            put(NEWLINE);
+        }
+        count++;
+        lastId = recipe.getId();
+    }
+
+    /**
+     * Pushes everything written so far down to the target channel. Once this returns the target holds a complete
+     * prefix of the export ending after the last written recipe.
+     */
+    public void checkpoint() throws IOException {
+        drain();
+        if(gzipStream != null) {
+            gzipStream.finish();
+            gzipStream = null;
+            sink = null;
+        }
+        targetStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // An export without any data still has to be a valid gzip stream, an empty member carries header and trailer
+        if(compress && !memberStarted)
+            sink();
+        checkpoint();
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if(bytes.length > buffer.remaining())
+            drain();
+        if(bytes.length > buffer.capacity())
+            writeFully(ByteBuffer.wrap(bytes));
+        else
+            buffer.put(bytes);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        if(!bytes.hasRemaining())
+            return;
+        var channel = sink();
+        while(bytes.hasRemaining())
+            channel.write(bytes);
+    }
+
+    private WritableByteChannel sink() throws IOException {
+        if(sink == null) {
+            if(compress) {
+                gzipStream = new GZIPOutputStream(targetStream, BUFFER_SIZE);
+                sink = Channels.newChannel(gzipStream);
+                memberStarted = true;
+            } else {
+                sink = target;
+            }
+        }
+        return sink;
+    }
+
+    private static String toCsv(Recipe recipe) {
+        var recipeColumns = new StringBuilder()
+                .append(recipe.getId()).append(',')
+                .append(csvValue(recipe.getName())).append(',')
+                .append(csvValue(recipe.getType())).append(',')
+                .append(recipe.getServingCapacity() == null ? "" : recipe.getServingCapacity()).append(',')
+                .append(csvValue(recipe.getInstruction())).append(',')
+                .toString();
+        if(recipe.getIngredientList() == null || recipe.getIngredientList().isEmpty())
+            return recipeColumns + ",,\n";
+
+        var rows = new StringBuilder();
+        for(Ingredient ingredient : recipe.getIngredientList()) {
+            rows.append(recipeColumns)
+                    .append(ingredient.getId() == null ? "" : ingredient.getId()).append(',')
+                    .append(csvValue(ingredient.getName())).append(',')
+                    .append(csvValue(ingredient.getQuantity())).append('\n');
+        }
+        return rows.toString();
+    }
+
+    private static String csvValue(String value) {
+        if(value == null)
+            return "";
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,219 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.exception.ErrorConstants;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeImportResult;
+import com.recipes.repository.IngredientDictionary;
+import com.recipes.repository.RecipeRepository;
+import com.recipes.utils.RecipeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Loads recipes in bulk. Records are read one at a time from the request stream, validated, and written in
+ * transactions of {@code recipes.import.batch-size} records; within a transaction Hibernate sends the inserts as JDBC
+ * batches. A batch that fails is replayed record by record so one bad record only costs its own row.
+ */
+@Service
+@Slf4j
+public class RecipeImportService {
+
+    private static final RecipeMapper RECIPE_MAPPER = RecipeMapper.INSTANCE;
+
+    @Autowired
+    private RecipeRepository recipeRepository;
+
+    @Autowired
+    private IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${recipes.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${recipes.import.max-reported-failures:" + RecipeImportResult.DEFAULT_MAX_REPORTED_FAILURES + "}")
+    private int maxReportedFailures;
+
+    private ObjectReader recipeReader;
+
+    @PostConstruct
+    public void init() {
+        recipeReader = objectMapper.readerFor(Recipe.class);
+    }
+
+    public RecipeImportResult importNdjson(InputStream inputStream) throws IOException {
+        var importBatch = new ImportBatch();
+        try (var reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long recordNumber = 0;
+            while((line = reader.readLine()) != null) {
+                if(line.isBlank())
+                    continue;
+                recordNumber++;
+                try {
+                    importBatch.add(recordNumber, recipeReader.readValue(line));
+                } catch(JsonProcessingException ex) {
+                    log.debug("Import record {} is malformed", recordNumber, ex);
+                    importBatch.result.addFailure(recordNumber, ErrorConstants.IMPORT_MALFORMED_RECORD + location(ex));
+                }
+            }
+        }
+        return importBatch.finish();
+    }
+
+    public RecipeImportResult importJsonArray(InputStream inputStream) throws IOException {
+        var importBatch = new ImportBatch();
+        long recordNumber = 0;
+        try (var iterator = recipeReader.<Recipe>readValues(inputStream)) {
+            while(iterator.hasNextValue()) {
+                recordNumber++;
+                importBatch.add(recordNumber, iterator.nextValue());
+            }
+        } catch(JsonProcessingException ex) {
+            // A broken array cannot be resynchronised, the records read so far are still imported
+            log.debug("Import input is malformed after record {}", recordNumber, ex);
+            importBatch.result.addFailure(recordNumber, ErrorConstants.IMPORT_MALFORMED_INPUT + location(ex));
+        }
+        return importBatch.finish();
+    }
+
+    private List<Recipe> persist(List<ImportRecord> records) {
+        return transactionTemplate.execute(status -> {
+            var recipeEntities = records.stream().map(record -> toNewEntity(record.recipe)).collect(Collectors.toList());
+            // One lookup, and at most one insert, of the ingredient names for the whole batch
+            ingredientDictionary.assignNameIds(recipeEntities.stream()
+                    .flatMap(recipeEntity -> recipeEntity.getIngredientEntityList().stream()).collect(Collectors.toList()));
+            recipeRepository.saveAll(recipeEntities);
+            // Flushing through the repository translates constraint failures into DataIntegrityViolationException
+            recipeRepository.flush();
+
+            var savedRecipes = new ArrayList<Recipe>(recipeEntities.size());
+            for(RecipeEntity recipeEntity : recipeEntities) {
+                var savedRecipe = RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity);
+                eventPublisher.publishEvent(new RecipeSavedEvent(savedRecipe, recipeEntity.getCreationDate()));
+                savedRecipes.add(savedRecipe);
+            }
+            entityManager.clear();
+            return savedRecipes;
+        });
+    }
+
+    /**
+     * Only where the parser stopped is reported back, its message can name internal types of the payload mapping.
+     */
+    private static String location(JsonProcessingException ex) {
+        var location = ex.getLocation();
+        return location == null ? "" : " at line " + location.getLineNr() + ", column " + location.getColumnNr();
+    }
+
+    /**
+     * A stable reason for a record the database rejected. The exception message carries SQL, table and constraint
+     * details and is only logged.
+     */
+    private static String saveFailureReason(long recordNumber, RuntimeException ex) {
+        log.warn("Import record {} could not be saved", recordNumber, ex);
+        return ex instanceof DataIntegrityViolationException
+                ? ErrorConstants.IMPORT_CONSTRAINT_VIOLATION : ErrorConstants.IMPORT_SAVE_FAILED;
+    }
+
+    private static RecipeEntity toNewEntity(Recipe recipe) {
+        var recipeEntity = RECIPE_MAPPER.recipeToRecipeEntity(recipe);
+        // Imported records always become new rows, ids and versions in the payload are ignored
+        recipeEntity.setId(null);
+        recipeEntity.setVersion(null);
+        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> {
+            ingredientEntity.setId(null);
+            ingredientEntity.setRecipeEntity(recipeEntity);
+        });
+        return recipeEntity;
+    }
+
+    private static class ImportRecord {
+        private final long recordNumber;
+        private final Recipe recipe;
+
+        private ImportRecord(long recordNumber, Recipe recipe) {
+            this.recordNumber = recordNumber;
+            this.recipe = recipe;
+        }
+    }
+
+    private class ImportBatch {
+        private final RecipeImportResult result = new RecipeImportResult(maxReportedFailures);
+        private final List<ImportRecord> pending = new ArrayList<>(batchSize);
+
+        private void add(long recordNumber, Recipe recipe) {
+            var violations = validator.validate(recipe);
+            if(!violations.isEmpty()) {
+                result.addFailure(recordNumber, violations.stream().map(ConstraintViolation::getMessage)
+                        .sorted().collect(Collectors.joining(", ")));
+                return;
+            }
+            pending.add(new ImportRecord(recordNumber, recipe));
+            if(pending.size() >= batchSize)
+                flush();
+        }
+
+        private void flush() {
+            if(pending.isEmpty())
+                return;
+            try {
+                result.setImportedCount(result.getImportedCount() + persist(pending).size());
+            } catch(RuntimeException ex) {
+                log.warn("Import batch of {} records failed, retrying records individually", pending.size(), ex);
+                for(ImportRecord record : pending) {
+                    try {
+                        result.setImportedCount(result.getImportedCount() + persist(List.of(record)).size());
+                    } catch(RuntimeException recordEx) {
+                        result.addFailure(record.recordNumber, saveFailureReason(record.recordNumber, recordEx));
+                    }
+                }
+            }
+            pending.clear();
+        }
+
+        private RecipeImportResult finish() {
+            flush();
+            log.info("Recipe import finished with {} imported and {} failed records", result.getImportedCount(),
+                    result.getFailedCount());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.recipes.pojos.Recipe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Turns a recipe into the {@link SerializedRecipe} kept in the recipe cache, so a hot recipe is run through Jackson
+ * once rather than on every JSON read.
+ */
+@Component
+public class RecipeSerializer {
+
+    private final ObjectWriter recipeWriter;
+
+    // Below this size the gzip header and deflate overhead eat most of the saving
+    private final int gzipMinSize;
+
+    public RecipeSerializer(ObjectMapper objectMapper, @Value("${recipes.recipe-cache.gzip-min-size:1024}") int gzipMinSize) {
+        this.recipeWriter = objectMapper.writerFor(Recipe.class);
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    public SerializedRecipe serialize(Recipe recipe) {
+        try {
+            var json = recipeWriter.writeValueAsBytes(recipe);
+            return new SerializedRecipe(recipe, json, json.length < gzipMinSize ? null : gzip(json));
+        } catch(JsonProcessingException ex) {
+            throw new IllegalStateException("Recipe " + recipe.getId() + " can not be serialized", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        var compressed = new ByteArrayOutputStream(json.length / 2);
+        try (var gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(json);
+        } catch(IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -1,18 +1,65 @@
 package com.recipes.service;
 
+import com.recipes.entities.IngredientEntity;
 import com.recipes.entities.RecipeEntity;
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.exception.BadRequestException;
 import com.recipes.exception.ErrorConstants;
+import com.recipes.exception.PreconditionFailedException;
 import com.recipes.exception.RecipeNotFoundException;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.IngredientSuggestion;
 import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipeFacets;
+import com.recipes.pojos.RecipeLookupResult;
+import com.recipes.pojos.RecipePatch;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.pojos.ScoredRecipe;
+import com.recipes.repository.IngredientDictionary;
+import com.recipes.repository.IngredientNameRepository;
 import com.recipes.repository.RecipeRepository;
+import com.recipes.repository.RecipeSpecifications;
+import com.recipes.search.RecipeSearchIndex;
+import com.recipes.search.TextAnalyzer;
+import com.recipes.utils.ParallelRangeExecutor;
 import com.recipes.utils.RecipeMapper;
+import com.recipes.utils.SingleFlight;
+import com.recipes.utils.WriteGenerations;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,84 +68,504 @@ public class RecipesService {
 
     private static final RecipeMapper RECIPE_MAPPER = RecipeMapper.INSTANCE;
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_FACET_VALUES = 100;
+    public static final int MAX_SUGGESTIONS = 50;
+
+    // Keeps every IN list well below Oracle's limit of 1000 expressions
+    static final int ID_CHUNK_SIZE = 500;
+
+    public static final String RECIPE_CACHE = "recipes";
+
+    public static final String SEARCH_METRIC = "recipes.search";
+
+    public static final String COALESCED_METRIC = "recipes.requests.coalesced";
+
+    static final int WRITE_GENERATION_STRIPES = 1024;
+
     @Autowired
     private RecipeRepository recipeRepository;
 
+    @Autowired
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @Autowired
+    private IngredientNameRepository ingredientNameRepository;
+
+    @Autowired
+    private IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RecipeSerializer recipeSerializer;
+
+    @Autowired
+    private ParallelRangeExecutor parallelRangeExecutor = ParallelRangeExecutor.SEQUENTIAL;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Concurrent cache misses for one recipe and concurrent identical searches share a single database read
+    private final SingleFlight<WriteGenerations.Generation, SerializedRecipe> recipeLoads = new SingleFlight<>();
+    private final SingleFlight<SearchFlight, SearchResult> searches = new SingleFlight<>();
+
+    // Moved on once a write to a recipe has committed, so loads and searches started before it are not joined, and
+    // loads not cached
+    private final WriteGenerations writeGenerations = new WriteGenerations(WRITE_GENERATION_STRIPES);
+
+    @PostConstruct
+    public void registerCoalescingMetrics() {
+        registerCoalescingMetrics("getRecipe", recipeLoads);
+        registerCoalescingMetrics("searchRecipe", searches);
+    }
+
+    private void registerCoalescingMetrics(String operation, SingleFlight<?, ?> singleFlight) {
+        FunctionCounter.builder(COALESCED_METRIC, singleFlight, SingleFlight::getCoalescedCount)
+                .description("Requests answered with the result of an identical request already in flight")
+                .tag("operation", operation).register(meterRegistry);
+        FunctionCounter.builder(COALESCED_METRIC + ".executed", singleFlight, SingleFlight::getExecutedCount)
+                .description("Requests that ran their own lookup")
+                .tag("operation", operation).register(meterRegistry);
+    }
+
     @Transactional
     public Integer createRecipe(Recipe recipe) {
         var recipeEntity = RECIPE_MAPPER.recipeToRecipeEntity(recipe);
+        // Ids and a version sent by the client would make the new recipe look detached, they are always assigned here
+        recipeEntity.setId(null);
+        recipeEntity.setVersion(null);
 
-        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> ingredientEntity.setRecipeEntity(recipeEntity));
+        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> {
+            ingredientEntity.setId(null);
+            ingredientEntity.setRecipeEntity(recipeEntity);
+        });
+        ingredientDictionary.assignNameIds(recipeEntity.getIngredientEntityList());
 
        var savedEntity =  recipeRepository.save(recipeEntity);
+        eventPublisher.publishEvent(new RecipeSavedEvent(RECIPE_MAPPER.recipeEntityToRecipe(savedEntity),
+                savedEntity.getCreationDate()));
 
         return savedEntity.getId();
     }
 
+    /**
+     * The cached recipe is shared by every reader, so it is never handed out itself: each caller gets its own copy
+     * and may change it freely.
+     */
     public Recipe getRecipe(Integer id) {
-        var optRecipe = recipeRepository.findById(id);
-        if(optRecipe.isPresent())
-            return RECIPE_MAPPER.recipeEntityToRecipe(optRecipe.get());
-        else
-            throw new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND);
+        return RECIPE_MAPPER.copyRecipe(getSerializedRecipe(id).getRecipe());
     }
 
-    public List<Recipe> getAllRecipes(){
-        var retrievedRecipes = recipeRepository.findAll();
-        log.debug("Number of retrieved recipes from DB: " + retrievedRecipes.size());
+    /**
+     * The recipe as held in the recipe cache, with its JSON already encoded. Every representation of a single recipe
+     * is served from this one entry, so it is cached, sized and evicted once.
+     *
+     * Cache misses only join a load started in the same write generation. A write advances the generation of its
+     * recipe once committed and evicts the cache entry afterwards, so a read issued after the write never joins a load
+     * that may have read the older row, and such a load removes what it cached when it finds the generation has moved.
+     */
+    public SerializedRecipe getSerializedRecipe(Integer id) {
+        var recipeCache = cacheManager.getCache(RECIPE_CACHE);
+        var serializedRecipe = recipeCache.get(id, SerializedRecipe.class);
+        if(serializedRecipe != null)
+            return serializedRecipe;
+        var generation = writeGenerations.current(id);
+        return recipeLoads.execute(generation, () -> {
+            var optRecipe = recipeRepository.findById(id);
+            if(optRecipe.isEmpty())
+                throw new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND);
+            var loadedRecipe = recipeSerializer.serialize(RECIPE_MAPPER.recipeEntityToRecipe(optRecipe.get()));
+            recipeCache.put(id, loadedRecipe);
+            if(!writeGenerations.isCurrent(generation))
+                recipeCache.evict(id);
+            return loadedRecipe;
+        });
+    }
+
+    /**
+     * Runs after the writing transaction has committed and before the cache eviction of the write, and after the
+     * search index has applied the write.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeSaved(RecipeSavedEvent event) {
+        writeGenerations.advance(event.getRecipe().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeDeleted(RecipeDeletedEvent event) {
+        writeGenerations.advance(event.getRecipeId());
+    }
+
+    public List<Recipe> getAllRecipes(Integer afterId, int limit){
+        if(limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+
+        var retrievedRecipes = recipeRepository.findRecipesAfter(afterId == null ? 0 : afterId, PageRequest.ofSize(limit));
+        log.debug("Number of retrieved recipes from DB: {}", retrievedRecipes.size());
         var recipesList = new ArrayList<Recipe>(retrievedRecipes.size());
         retrievedRecipes.forEach(recipeEntity -> recipesList.add(RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity)));
 
         return recipesList;
     }
 
+    /**
+     * Looks up a set of recipes with one join fetch statement per {@link #ID_CHUNK_SIZE} ids. The result follows the
+     * request order, repeated ids are answered once, and ids without a recipe are returned as not found.
+     */
+    public List<RecipeLookupResult> getRecipes(Collection<Integer> ids) {
+        var requestedIds = new LinkedHashSet<Integer>(ids);
+        requestedIds.remove(null);
+        if(requestedIds.isEmpty() || requestedIds.size() > MAX_PAGE_SIZE)
+            throw new BadRequestException("Number of recipe ids must be between 1 and " + MAX_PAGE_SIZE);
+
+        var recipesById = new HashMap<Integer, Recipe>(requestedIds.size() * 2);
+        var chunk = new ArrayList<Integer>(Math.min(requestedIds.size(), ID_CHUNK_SIZE));
+        for(Integer id : requestedIds) {
+            chunk.add(id);
+            if(chunk.size() == ID_CHUNK_SIZE) {
+                loadRecipes(chunk, recipesById);
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty())
+            loadRecipes(chunk, recipesById);
+        log.debug("Number of retrieved recipes from DB: {} of {} requested", recipesById.size(), requestedIds.size());
+
+        var results = new ArrayList<RecipeLookupResult>(requestedIds.size());
+        for(Integer id : requestedIds) {
+            var recipe = recipesById.get(id);
+            results.add(recipe == null ? RecipeLookupResult.notFound(id) : RecipeLookupResult.found(recipe));
+        }
+        return results;
+    }
+
+    private void loadRecipes(List<Integer> ids, Map<Integer, Recipe> recipesById) {
+        recipeRepository.findAllWithIngredientsByIdIn(ids)
+                .forEach(recipeEntity -> recipesById.put(recipeEntity.getId(), RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity)));
+    }
+
+    /**
+     * Walks all recipes after the given id over a forward-only cursor. Every entity is detached once it
+     * has been handed to the consumer, so the persistence context does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllRecipes(Integer afterId, Consumer<Recipe> consumer) {
+        streamAllRecipeEntities(afterId, recipeEntity -> consumer.accept(RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity)));
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllRecipeEntities(Integer afterId, Consumer<RecipeEntity> consumer) {
+        try (var recipeEntities = recipeRepository.streamRecipesAfter(afterId == null ? 0 : afterId)) {
+            recipeEntities.forEach(recipeEntity -> {
+                consumer.accept(recipeEntity);
+                entityManager.detach(recipeEntity);
+            });
+        }
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = RECIPE_CACHE, key = "#recipe.id")
     public Recipe modifyExistingRecipe(Recipe recipe) {
-        return saveRecipeToRepository(recipe);
+        return updateRecipe(recipe);
     }
 
+    @Transactional
+    @CacheEvict(cacheNames = RECIPE_CACHE, key = "#newRecipe.id")
     public Recipe saveRecipeToRepository(Recipe newRecipe) {
-        var optRecipe = recipeRepository.findById(newRecipe.getId());
-        if(optRecipe.isPresent()) {
-            var recipeEntity = RECIPE_MAPPER.recipeToRecipeEntity(newRecipe);
-            recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> ingredientEntity.setRecipeEntity(recipeEntity));
-            return RECIPE_MAPPER.recipeEntityToRecipe(recipeRepository.save(recipeEntity));
-        } else {
+        return updateRecipe(newRecipe);
+    }
+
+    /**
+     * Applies only the fields present in the patch; the ingredient rows are touched only when a list is given.
+     * Like a full update it is rejected when the patch carries a version other than the stored one.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = RECIPE_CACHE, key = "#id")
+    public Recipe patchRecipe(Integer id, RecipePatch recipePatch) {
+        var recipeEntity = loadForUpdate(id, recipePatch.getVersion());
+        var nameIds = recipePatch.getIngredientList() == null ? Map.<String, Integer>of() : ingredientNameIds(recipePatch.getIngredientList());
+        if(recipePatch.getName() != null)
+            recipeEntity.setName(recipePatch.getName());
+        if(recipePatch.getType() != null)
+            recipeEntity.setType(recipePatch.getType());
+        if(recipePatch.getServingCapacity() != null)
+            recipeEntity.setServingCapacity(recipePatch.getServingCapacity());
+        if(recipePatch.getInstruction() != null)
+            recipeEntity.setInstruction(recipePatch.getInstruction());
+        var ingredientsChanged = recipePatch.getIngredientList() != null
+                && mergeIngredients(recipeEntity, recipePatch.getIngredientList(), nameIds);
+        return saveUpdatedRecipe(recipeEntity, ingredientsChanged);
+    }
+
+    private Recipe updateRecipe(Recipe recipe) {
+        var recipeEntity = loadForUpdate(recipe.getId(), recipe.getVersion());
+        var ingredients = recipe.getIngredientList() == null ? List.<Ingredient>of() : recipe.getIngredientList();
+        var nameIds = ingredientNameIds(ingredients);
+        recipeEntity.setName(recipe.getName());
+        recipeEntity.setType(recipe.getType());
+        recipeEntity.setServingCapacity(recipe.getServingCapacity());
+        recipeEntity.setInstruction(recipe.getInstruction());
+        var ingredientsChanged = mergeIngredients(recipeEntity, ingredients, nameIds);
+        return saveUpdatedRecipe(recipeEntity, ingredientsChanged);
+    }
+
+    /**
+     * The expected version is checked against the loaded row here; a concurrent update committing after this point
+     * is caught by the versioned UPDATE on flush and surfaces as an optimistic locking failure.
+     */
+    private RecipeEntity loadForUpdate(Integer id, Integer expectedVersion) {
+        if(id == null)
             throw new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND);
+        var recipeEntity = recipeRepository.findWithIngredientsById(id)
+                .orElseThrow(() -> new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND));
+        if(expectedVersion != null && !expectedVersion.equals(recipeEntity.getVersion()))
+            throw new PreconditionFailedException(ErrorConstants.RECIPE_VERSION_MISMATCH);
+        return recipeEntity;
+    }
+
+    /**
+     * Resolved before the recipe is changed: inserting a new name flushes, and an early flush of the changed recipe
+     * would move its version on before {@link #saveUpdatedRecipe(RecipeEntity, boolean)} can compare it.
+     */
+    private Map<String, Integer> ingredientNameIds(List<Ingredient> ingredients) {
+        return ingredientDictionary.nameIds(ingredients.stream().map(Ingredient::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * Diffs the requested ingredients against the managed rows: rows whose id is sent again are updated in place
+     * (dirty checking skips the unchanged ones), ingredients without an id are inserted and rows that are no longer
+     * listed are removed as orphans. Returns whether any ingredient row is inserted, changed or removed.
+     */
+    private static boolean mergeIngredients(RecipeEntity recipeEntity, List<Ingredient> ingredients, Map<String, Integer> nameIds) {
+        var existingIngredients = new HashMap<Integer, IngredientEntity>();
+        recipeEntity.getIngredientEntityList().forEach(ingredientEntity -> existingIngredients.put(ingredientEntity.getId(), ingredientEntity));
+
+        var changed = false;
+        var mergedIngredients = new ArrayList<IngredientEntity>(ingredients.size());
+        for(Ingredient ingredient : ingredients) {
+            IngredientEntity ingredientEntity;
+            if(ingredient.getId() == null) {
+                ingredientEntity = new IngredientEntity(null, ingredient.getName(), ingredient.getQuantity(), recipeEntity);
+                changed = true;
+            } else {
+                ingredientEntity = existingIngredients.remove(ingredient.getId());
+                if(ingredientEntity == null)
+                    throw new BadRequestException("Ingredient " + ingredient.getId() + " does not belong to recipe " + recipeEntity.getId());
+                changed |= !Objects.equals(ingredientEntity.getName(), ingredient.getName())
+                        || !Objects.equals(ingredientEntity.getQuantity(), ingredient.getQuantity());
+                ingredientEntity.setName(ingredient.getName());
+                ingredientEntity.setQuantity(ingredient.getQuantity());
+            }
+            ingredientEntity.setNameId(IngredientDictionary.nameId(nameIds, ingredient.getName()));
+            mergedIngredients.add(ingredientEntity);
         }
+
+        // Keep the managed collection instance so Hibernate can track the orphans
+        recipeEntity.getIngredientEntityList().clear();
+        recipeEntity.getIngredientEntityList().addAll(mergedIngredients);
+        return changed || !existingIngredients.isEmpty();
+    }
+
+    private Recipe saveUpdatedRecipe(RecipeEntity recipeEntity, boolean ingredientsChanged) {
+        var loadedVersion = recipeEntity.getVersion();
+        // Flushing assigns the ids of new ingredients and the new version before the entity is mapped back; going
+        // through the repository translates a lost optimistic lock into ObjectOptimisticLockingFailureException
+        recipeRepository.flush();
+        // Ingredient rows do not dirty the recipe row, so an ingredient only change moves the version on explicitly.
+        // The increment is a versioned UPDATE issued right away, a concurrent writer still fails the version check.
+        if(ingredientsChanged && Objects.equals(loadedVersion, recipeEntity.getVersion()))
+            entityManager.lock(recipeEntity, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        var savedRecipe = RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity);
+        eventPublisher.publishEvent(new RecipeSavedEvent(savedRecipe, recipeEntity.getCreationDate()));
+        return savedRecipe;
     }
 
+    @CacheEvict(cacheNames = RECIPE_CACHE, key = "#id")
     public void deleteRecipe(Integer id) {
         try {
             recipeRepository.deleteById(id);
         } catch(Exception ex) {
             throw new RecipeNotFoundException(ErrorConstants.RECIPE_NOT_FOUND);
         }
+        eventPublisher.publishEvent(new RecipeDeletedEvent(id));
     }
 
-    public List<Recipe> searchRecipe( String dishType, Integer numberOfServing,
-                              String ingredient, Boolean ingredientIncluded,
-                              String instructionSearch) {
-
-        var recipeEntities = recipeRepository.findAllRecipesBySearchCriteria(dishType, numberOfServing,
-                instructionSearch);
-        List<RecipeEntity> filteredRecipe;
-        log.debug("Number of retrieved recipes from DB: " + recipeEntities.size());
+    /**
+     * Every search is timed and its result size recorded, tagged by where it was answered (index or database) and
+     * by which criteria were given, so slow query shapes show up separately in the percentiles. Searches for the same
+     * normalized criteria running at the same time are answered by one lookup, provided no write has committed since
+     * that lookup started, so a caller always finds what it wrote before searching. The returned list is then shared
+     * by those callers and is therefore unmodifiable.
+     */
+    public List<Recipe> searchRecipe(RecipeSearchCriteria criteria) {
+        var sample = Timer.start(meterRegistry);
+        var result = searches.execute(new SearchFlight(SearchKey.of(criteria), writeGenerations.latest()), () -> {
+            if(recipeSearchIndex.isReady())
+                return new SearchResult(Collections.unmodifiableList(recipeSearchIndex.search(criteria)), "index");
+            var recipeEntities = recipeRepository.findAll(RecipeSpecifications.matching(criteria));
+            log.debug("Number of retrieved recipes from DB: {}", recipeEntities.size());
+            return new SearchResult(Collections.unmodifiableList(mapRecipes(recipeEntities)), "database");
+        });
 
+        var tags = Tags.of("source", result.getSource(), "criteria", criteriaShape(criteria));
+        sample.stop(Timer.builder(SEARCH_METRIC).description("Recipe search latency").tags(tags).register(meterRegistry));
+        DistributionSummary.builder(SEARCH_METRIC + ".results").description("Number of recipes found per search")
+                .tags(tags).register(meterRegistry).record(result.getRecipes().size());
+        return result.getRecipes();
+    }
 
-        if(ingredientIncluded) {
-            filteredRecipe = recipeEntities.stream()
-                    .filter(recipeEntity -> recipeEntity.getIngredientEntityList().stream()
-                            .anyMatch(ingredientEntity -> ingredient.equalsIgnoreCase(ingredientEntity.getName())))
-                    .collect(Collectors.toList());
+    /**
+     * Maps a search result, in position ranges on the parallel executor when it is large enough. The ingredients are
+     * fetched with the recipes, so mapping off the request thread never lazily loads from the persistence context.
+     */
+    private List<Recipe> mapRecipes(List<RecipeEntity> recipeEntities) {
+        var ranges = parallelRangeExecutor.mapRanges(recipeEntities.size(), (start, end) ->
+                recipeEntities.subList((int) start, (int) end).stream()
+                        .map(RECIPE_MAPPER::recipeEntityToRecipe)
+                        .collect(Collectors.toList()));
+        if(ranges.size() == 1)
+            return ranges.get(0);
+        var recipes = new ArrayList<Recipe>(recipeEntities.size());
+        ranges.forEach(recipes::addAll);
+        return recipes;
+    }
 
+    /**
+     * The best {@code limit} matches for a text query over recipe names and instructions, among the recipes matching
+     * the other criteria, with their relevance scores. Until the index is ready the recipes matching the criteria are
+     * read from the database and ranked against each other only, so term statistics cover those recipes alone.
+     */
+    public List<ScoredRecipe> rankedSearch(String query, RecipeSearchCriteria criteria, int limit) {
+        if(StringUtils.isBlank(query))
+            throw new BadRequestException("Search query must not be blank");
+        if(limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new BadRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        var sample = Timer.start(meterRegistry);
+        var useIndex = recipeSearchIndex.isReady();
+        List<ScoredRecipe> scoredRecipes;
+        if(useIndex) {
+            scoredRecipes = recipeSearchIndex.rankedSearch(query, criteria, limit);
         } else {
-            filteredRecipe = recipeEntities.stream()
-                    .filter(recipeEntity -> recipeEntity.getIngredientEntityList().stream()
-                            .noneMatch(ingredientEntity -> ingredient.equalsIgnoreCase(ingredientEntity.getName())))
-                    .collect(Collectors.toList());
+            var candidateIndex = new RecipeSearchIndex(ingredientDictionary, ParallelRangeExecutor.SEQUENTIAL);
+            recipeRepository.findAll(RecipeSpecifications.matching(criteria))
+                    .forEach(recipeEntity -> candidateIndex.index(RECIPE_MAPPER.recipeEntityToRecipe(recipeEntity)));
+            scoredRecipes = candidateIndex.rankedSearch(query, new RecipeSearchCriteria(), limit);
         }
+        sample.stop(Timer.builder(SEARCH_METRIC + ".ranked").description("Ranked recipe search latency")
+                .tags("source", useIndex ? "index" : "database").register(meterRegistry));
+        return scoredRecipes;
+    }
 
-        return filteredRecipe.stream().map(RECIPE_MAPPER::recipeEntityToRecipe).collect(Collectors.toList());
+    /**
+     * Ingredient names completing the prefix typed so far, most used first. With {@code fuzzy} the prefix may contain
+     * one typo from four characters on and two from eight on; shorter prefixes have too many neighbours for typos to
+     * help. Until the index is ready suggestions come from the database and only complete the exact prefix.
+     */
+    public List<IngredientSuggestion> suggestIngredients(String prefix, int limit, boolean fuzzy) {
+        if(StringUtils.isBlank(prefix))
+            throw new BadRequestException("Prefix must not be blank");
+        if(limit < 1 || limit > MAX_SUGGESTIONS)
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        if(!recipeSearchIndex.isReady())
+            return ingredientNameRepository.findSuggestions(TextAnalyzer.normalizeIngredientName(prefix), PageRequest.of(0, limit));
+        var length = prefix.trim().length();
+        var maxEdits = !fuzzy || length < 4 ? 0 : length < 8 ? 1 : 2;
+        return recipeSearchIndex.suggestIngredients(prefix, maxEdits, limit);
     }
 
+    /**
+     * Counts per requested facet over the recipes a search would return, for one call instead of one search per
+     * facet value. The index answers it from its postings; until the index is ready every facet is one GROUP BY
+     * statement over the matching recipes, none of which is read.
+     */
+    public RecipeFacets searchFacets(RecipeSearchCriteria criteria, Set<RecipeFacet> facets, int topIngredients) {
+        if(topIngredients < 1 || topIngredients > MAX_FACET_VALUES)
+            throw new BadRequestException("Number of top ingredients must be between 1 and " + MAX_FACET_VALUES);
+        var sample = Timer.start(meterRegistry);
+        var useIndex = recipeSearchIndex.isReady();
+        var recipeFacets = useIndex
+                ? recipeSearchIndex.facets(criteria, facets, topIngredients)
+                : countFacets(criteria, facets, topIngredients);
+        sample.stop(Timer.builder(SEARCH_METRIC + ".facets").description("Recipe facet count latency")
+                .tags("source", useIndex ? "index" : "database").register(meterRegistry));
+        return recipeFacets;
+    }
+
+    private RecipeFacets countFacets(RecipeSearchCriteria criteria, Set<RecipeFacet> facets, int topIngredients) {
+        var recipeFacets = new RecipeFacets();
+        recipeFacets.setTotal(recipeRepository.count(RecipeSpecifications.filtering(criteria)));
+        if(facets.contains(RecipeFacet.DISH_TYPE))
+            recipeFacets.setDishType(RecipeFacets.ranked(recipeRepository.countByDishType(criteria), Integer.MAX_VALUE));
+        if(facets.contains(RecipeFacet.NUMBER_OF_SERVING))
+            recipeFacets.setNumberOfServing(RecipeFacets.ranked(recipeRepository.countByNumberOfServing(criteria), Integer.MAX_VALUE));
+        if(facets.contains(RecipeFacet.INGREDIENT))
+            recipeFacets.setIngredient(RecipeFacets.ranked(recipeRepository.countTopIngredients(criteria, topIngredients), topIngredients));
+        return recipeFacets;
+    }
+
+    /**
+     * Names the criteria present in a search, e.g. "dishType+included", a bounded set of values fit for a tag.
+     */
+    static String criteriaShape(RecipeSearchCriteria criteria) {
+        var shape = new StringJoiner("+");
+        shape.setEmptyValue("none");
+        if(criteria.getDishType() != null)
+            shape.add("dishType");
+        if(criteria.getNumberOfServing() != null)
+            shape.add("servings");
+        if(criteria.getIncludedIngredients() != null && !criteria.getIncludedIngredients().isEmpty())
+            shape.add("included");
+        if(criteria.getExcludedIngredients() != null && !criteria.getExcludedIngredients().isEmpty())
+            shape.add("excluded");
+        if(StringUtils.isNotBlank(criteria.getInstructionSearch()))
+            shape.add("instruction");
+        return shape.toString();
+    }
+
+    /**
+     * Search criteria reduced to what the result depends on: ingredient names are normalized and their order and
+     * repetitions do not matter, and the instruction text is reduced to its set of words, which both search paths
+     * look for regardless of case and order. Dish type is compared as given, as both search paths do.
+     */
+    @Value
+    static class SearchKey {
+        String dishType;
+        Integer numberOfServing;
+        Set<String> includedIngredients;
+        Set<String> excludedIngredients;
+        Set<String> instructionWords;
+
+        static SearchKey of(RecipeSearchCriteria criteria) {
+            return new SearchKey(criteria.getDishType(), criteria.getNumberOfServing(),
+                    new TreeSet<>(TextAnalyzer.normalizeIngredientNames(criteria.getIncludedIngredients())),
+                    new TreeSet<>(TextAnalyzer.normalizeIngredientNames(criteria.getExcludedIngredients())),
+                    new TreeSet<>(TextAnalyzer.tokenize(criteria.getInstructionSearch())));
+        }
+    }
+
+    /**
+     * Identical searches started in the same write generation of the recipe table, which share one lookup.
+     */
+    @Value
+    private static class SearchFlight {
+        SearchKey searchKey;
+        long writeGeneration;
+    }
+
+    /**
+     * A search result together with where it was answered, so callers sharing it tag their metrics the same way.
+     */
+    @Value
+    private static class SearchResult {
+        List<Recipe> recipes;
+        String source;
+    }
 }
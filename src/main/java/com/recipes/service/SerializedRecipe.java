@@ -0,0 +1,40 @@
+package com.recipes.service;
+
+import com.recipes.pojos.Recipe;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A recipe as it is kept in the recipe cache: the mapped recipe for the message converters, its JSON encoding and,
+ * for larger recipes, the same JSON gzip compressed. All of it is shared between requests and must not be modified;
+ * {@link RecipesService#getRecipe(Integer)} hands out copies of the recipe.
+ */
+@Getter
+@AllArgsConstructor
+public class SerializedRecipe {
+
+    public static final String GZIP_ETAG_SUFFIX = "-gz";
+
+    @Getter(AccessLevel.PACKAGE)
+    private final Recipe recipe;
+    private final byte[] json;
+    private final byte[] gzippedJson;
+
+    public Integer getId() {
+        return recipe.getId();
+    }
+
+    public Integer getVersion() {
+        return recipe.getVersion();
+    }
+
+    public String getETag() {
+        return "\"" + getVersion() + "\"";
+    }
+
+    // A strong ETag names one content coding, the gzipped JSON has its own
+    public String getGzippedETag() {
+        return "\"" + getVersion() + GZIP_ETAG_SUFFIX + "\"";
+    }
+}
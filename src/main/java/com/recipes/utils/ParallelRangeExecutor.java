@@ -0,0 +1,113 @@
+package com.recipes.utils;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs in-memory work over a range of recipe ids, or of list positions, as consecutive sub-ranges on a dedicated
+ * fork-join pool, and returns the results of the sub-ranges in range order. Work smaller than the threshold runs on
+ * the calling thread, and one call never splits into more than {@code maxTasks} sub-ranges, so a single large request
+ * can only occupy that many of the pool's workers.
+ *
+ * The calling thread works on the first sub-range itself while the pool works on the others.
+ */
+public class ParallelRangeExecutor {
+
+    /**
+     * Runs every call on the calling thread.
+     */
+    public static final ParallelRangeExecutor SEQUENTIAL = new ParallelRangeExecutor(null, Integer.MAX_VALUE, 1);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int maxTasks;
+
+    public ParallelRangeExecutor(ForkJoinPool pool, int threshold, int maxTasks) {
+        this.pool = pool;
+        this.threshold = threshold;
+        this.maxTasks = maxTasks;
+    }
+
+    public static ParallelRangeExecutor withPool(String threadNamePrefix, int poolSize, int threshold, int maxTasks) {
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = forkJoinPool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(threadNamePrefix + thread.getPoolIndex());
+            return thread;
+        };
+        return new ParallelRangeExecutor(new ForkJoinPool(poolSize, threadFactory, null, false), threshold,
+                Math.min(maxTasks, poolSize + 1));
+    }
+
+    @FunctionalInterface
+    public interface RangeTask<R> {
+        /**
+         * Works on the ids, or positions, from {@code start} inclusive to {@code end} exclusive.
+         */
+        R apply(long start, long end);
+    }
+
+    /**
+     * Splits the ids of the bitmap into id ranges holding the same number of ids. The bitmap must not change while
+     * the call runs.
+     */
+    public <R> List<R> mapRanges(RoaringBitmap ids, RangeTask<R> task) {
+        int count = ids.getCardinality();
+        if(count == 0)
+            return List.of(task.apply(0, 0));
+        int tasks = taskCount(count);
+        var bounds = new long[tasks + 1];
+        for(int i = 0; i < tasks; i++)
+            bounds[i] = Integer.toUnsignedLong(ids.select((int) ((long) count * i / tasks)));
+        bounds[tasks] = Integer.toUnsignedLong(ids.last()) + 1;
+        return run(bounds, task);
+    }
+
+    /**
+     * Splits the positions 0 to {@code size} into ranges of the same length.
+     */
+    public <R> List<R> mapRanges(int size, RangeTask<R> task) {
+        int tasks = taskCount(size);
+        var bounds = new long[tasks + 1];
+        for(int i = 0; i <= tasks; i++)
+            bounds[i] = (long) size * i / tasks;
+        return run(bounds, task);
+    }
+
+    public void shutdown() {
+        if(pool != null)
+            pool.shutdown();
+    }
+
+    private int taskCount(int size) {
+        if(pool == null || size < threshold)
+            return 1;
+        // Every sub-range keeps at least half the threshold, below that forking costs more than it saves
+        return (int) Math.max(1, Math.min(maxTasks, size / Math.max(1L, threshold / 2)));
+    }
+
+    private <R> List<R> run(long[] bounds, RangeTask<R> task) {
+        int tasks = bounds.length - 1;
+        if(tasks == 1)
+            return List.of(task.apply(bounds[0], bounds[1]));
+
+        var forked = new ArrayList<ForkJoinTask<R>>(tasks - 1);
+        for(int i = 1; i < tasks; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            forked.add(pool.submit(() -> task.apply(start, end)));
+        }
+        var results = new ArrayList<R>(tasks);
+        try {
+            results.add(task.apply(bounds[0], bounds[1]));
+            for(ForkJoinTask<R> forkedTask : forked)
+                results.add(forkedTask.join());
+        } finally {
+            forked.forEach(forkedTask -> forkedTask.cancel(false));
+        }
+        return results;
+    }
+}
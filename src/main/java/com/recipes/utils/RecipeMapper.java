@@ -1,11 +1,14 @@
 package com.recipes.utils;
 
 import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Ingredient;
 import com.recipes.pojos.Recipe;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
+import java.util.List;
+
 @Mapper
 public interface RecipeMapper {
 
@@ -17,4 +20,11 @@ public interface RecipeMapper {
     @Mapping(source = "recipe.ingredientList", target = "ingredientEntityList")
     RecipeEntity recipeToRecipeEntity(Recipe recipe);
 
+    // Copies the ingredient list and its ingredients too, so the copy shares no mutable state with the original
+    Recipe copyRecipe(Recipe recipe);
+
+    List<Ingredient> copyIngredients(List<Ingredient> ingredients);
+
+    Ingredient copyIngredient(Ingredient ingredient);
+
 }
@@ -0,0 +1,70 @@
+package com.recipes.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the loader, callers arriving while it is still
+ * running wait for and share its result, or its exception. Nothing is kept once the call has finished, so a later
+ * call always loads again; this is not a cache.
+ *
+ * Shared results are handed to every waiting caller as the same instance and must not be modified.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executedCalls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        var call = new CompletableFuture<V>();
+        var runningCall = inFlight.putIfAbsent(key, call);
+        if(runningCall != null) {
+            coalescedCalls.increment();
+            return await(runningCall);
+        }
+
+        executedCalls.increment();
+        try {
+            var value = loader.get();
+            call.complete(value);
+            return value;
+        } catch(RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Number of calls that ran the loader themselves.
+     */
+    public long getExecutedCount() {
+        return executedCalls.sum();
+    }
+
+    /**
+     * Number of calls answered with the result of a call already in flight.
+     */
+    public long getCoalescedCount() {
+        return coalescedCalls.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch(CompletionException ex) {
+            // The loader's own exception is rethrown so waiting callers fail the same way as the one that loaded
+            if(ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if(ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.recipes.utils;
+
+import lombok.Value;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the committed writes of every recipe id, so a read can tell whether a write committed while it was loading
+ * the recipe. The counters are striped over a fixed number of slots and never grow with the table; ids sharing a slot
+ * only make each other's loads look outdated now and then.
+ *
+ * A write has to advance the generation before it evicts or replaces the cached value, and a load has to take its
+ * {@link Generation} before reading and check it after storing; then either the write removes what the load stored,
+ * or the load sees the write.
+ *
+ * Reads depending on every recipe, like searches, use the {@link #latest()} generation of the whole table instead.
+ */
+public class WriteGenerations {
+
+    private final AtomicLongArray generations;
+    private final AtomicLong latest = new AtomicLong();
+
+    public WriteGenerations(int stripes) {
+        generations = new AtomicLongArray(stripes);
+    }
+
+    public Generation current(Integer id) {
+        return new Generation(id, generations.get(stripe(id)));
+    }
+
+    public boolean isCurrent(Generation generation) {
+        return generations.get(stripe(generation.getId())) == generation.getValue();
+    }
+
+    /**
+     * Number of writes committed to any recipe so far.
+     */
+    public long latest() {
+        return latest.get();
+    }
+
+    public void advance(Integer id) {
+        generations.incrementAndGet(stripe(id));
+        latest.incrementAndGet();
+    }
+
+    private int stripe(Integer id) {
+        return Math.floorMod(id, generations.length());
+    }
+
+    /**
+     * The generation of one id, also the key under which loads of that id started in it are coalesced.
+     */
+    @Value
+    public static class Generation {
+        Integer id;
+        long value;
+    }
+}
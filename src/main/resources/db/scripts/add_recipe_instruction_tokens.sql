@@ -0,0 +1 @@
+ALTER TABLE RECIPE ADD INSTRUCTION_TOKENS VARCHAR2(1100 CHAR);
@@ -0,0 +1 @@
+ALTER TABLE RECIPE ADD VERSION NUMBER(10) DEFAULT 0 NOT NULL;
@@ -0,0 +1,9 @@
+DECLARE
+    next_recipe_id NUMBER;
+    next_ingredient_id NUMBER;
+BEGIN
+    SELECT NVL(MAX(ID), 0) + 1 INTO next_recipe_id FROM RECIPE;
+    SELECT NVL(MAX(ID), 0) + 1 INTO next_ingredient_id FROM INGREDIENT;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE RECIPE_SEQ START WITH ' || next_recipe_id || ' INCREMENT BY 50';
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE INGREDIENT_SEQ START WITH ' || next_ingredient_id || ' INCREMENT BY 50';
+END;
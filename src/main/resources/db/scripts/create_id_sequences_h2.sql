@@ -0,0 +1,3 @@
+CREATE SEQUENCE RECIPE_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE INGREDIENT_SEQ START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,3 @@
+CREATE INDEX INGREDIENT_RECIPE_ID_IDX ON INGREDIENT(RECIPE_ID);
+
+CREATE INDEX INGREDIENT_NAME_LOWER_IDX ON INGREDIENT(LOWER(NAME));
@@ -0,0 +1,4 @@
+-- H2 has no function based indexes, the plain NAME index stands in for LOWER(NAME) on development databases
+CREATE INDEX INGREDIENT_RECIPE_ID_IDX ON INGREDIENT(RECIPE_ID);
+
+CREATE INDEX INGREDIENT_NAME_LOWER_IDX ON INGREDIENT(NAME);
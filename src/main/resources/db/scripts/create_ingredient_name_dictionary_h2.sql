@@ -0,0 +1,26 @@
+CREATE TABLE INGREDIENT_NAME
+(
+    ID NUMBER(10) NOT NULL,
+    NAME VARCHAR2(50 CHAR) NOT NULL
+);
+
+ALTER TABLE INGREDIENT_NAME ADD CONSTRAINT INGREDIENT_NAME_PK1 PRIMARY KEY (ID);
+
+ALTER TABLE INGREDIENT_NAME ADD CONSTRAINT INGREDIENT_NAME_UK1 UNIQUE (NAME);
+
+-- Canonical form of a name: whitespace runs collapsed to one space, trimmed and lower cased
+INSERT INTO INGREDIENT_NAME (ID, NAME)
+SELECT ROW_NUMBER() OVER (ORDER BY NAME), NAME
+FROM (SELECT DISTINCT LOWER(TRIM(REGEXP_REPLACE(NAME, '\s+', ' '))) AS NAME FROM INGREDIENT);
+
+ALTER TABLE INGREDIENT ADD NAME_ID NUMBER(10);
+
+UPDATE INGREDIENT I SET NAME_ID = (SELECT N.ID FROM INGREDIENT_NAME N WHERE N.NAME = LOWER(TRIM(REGEXP_REPLACE(I.NAME, '\s+', ' '))));
+
+ALTER TABLE INGREDIENT ALTER COLUMN NAME_ID SET NOT NULL;
+
+ALTER TABLE INGREDIENT ADD CONSTRAINT INGREDIENT_FK2 FOREIGN KEY(NAME_ID) REFERENCES INGREDIENT_NAME(ID);
+
+CREATE INDEX INGREDIENT_NAME_ID_IDX ON INGREDIENT(NAME_ID, RECIPE_ID);
+
+DROP INDEX INGREDIENT_NAME_LOWER_IDX;
@@ -0,0 +1,6 @@
+DECLARE
+    next_ingredient_name_id NUMBER;
+BEGIN
+    SELECT NVL(MAX(ID), 0) + 1 INTO next_ingredient_name_id FROM INGREDIENT_NAME;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE INGREDIENT_NAME_SEQ START WITH ' || next_ingredient_name_id || ' INCREMENT BY 50';
+END;
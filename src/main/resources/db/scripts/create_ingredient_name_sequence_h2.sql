@@ -0,0 +1,3 @@
+CREATE SEQUENCE INGREDIENT_NAME_SEQ START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE INGREDIENT_NAME_SEQ RESTART WITH (SELECT NVL(MAX(ID), 0) + 1 FROM INGREDIENT_NAME);
@@ -0,0 +1 @@
+ALTER TABLE RECIPE DROP COLUMN INSTRUCTION_TOKENS;
@@ -0,0 +1,2 @@
+DROP SEQUENCE INGREDIENT_SEQ;
+DROP SEQUENCE RECIPE_SEQ;
@@ -0,0 +1,2 @@
+DROP INDEX INGREDIENT_NAME_LOWER_IDX;
+DROP INDEX INGREDIENT_RECIPE_ID_IDX;
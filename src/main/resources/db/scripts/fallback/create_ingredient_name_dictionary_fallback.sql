@@ -0,0 +1,9 @@
+CREATE INDEX INGREDIENT_NAME_LOWER_IDX ON INGREDIENT(LOWER(NAME));
+
+DROP INDEX INGREDIENT_NAME_ID_IDX;
+
+ALTER TABLE INGREDIENT DROP CONSTRAINT INGREDIENT_FK2;
+
+ALTER TABLE INGREDIENT DROP COLUMN NAME_ID;
+
+DROP TABLE INGREDIENT_NAME;
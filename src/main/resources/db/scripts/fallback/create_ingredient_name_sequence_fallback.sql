@@ -0,0 +1 @@
+DROP SEQUENCE INGREDIENT_NAME_SEQ;
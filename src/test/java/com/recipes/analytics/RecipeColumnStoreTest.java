@@ -0,0 +1,130 @@
+package com.recipes.analytics;
+
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeGroupBy;
+import com.recipes.pojos.RecipeGroupStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RecipeColumnStoreTest {
+
+    private static final long MARCH = Instant.parse("2026-03-15T10:00:00Z").toEpochMilli();
+    private static final long APRIL = Instant.parse("2026-04-01T08:00:00Z").toEpochMilli();
+
+    private RecipeColumnStore recipeColumnStore;
+
+    @BeforeEach
+    public void setUp() {
+        recipeColumnStore = new RecipeColumnStore();
+        recipeColumnStore.load(1, "veg", 4, MARCH, Arrays.asList("Tomato", "Basil"));
+        recipeColumnStore.load(2, "veg", 2, APRIL, Arrays.asList("Garlic", "tomato ", "Onion", "Tomato"));
+        recipeColumnStore.load(3, "nonveg", 4, MARCH, Arrays.asList("Chicken"));
+        recipeColumnStore.markReady();
+    }
+
+    @Test
+    public void testAverageIngredientCountPerDishType() {
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.DISH_TYPE));
+
+        assertEquals(Arrays.asList(Map.of("dishType", "veg"), Map.of("dishType", "nonveg")), groups(groupStats));
+        assertEquals(2, groupStats.get(0).getRecipes());
+        assertEquals(2.5, groupStats.get(0).getAverageIngredients());
+        assertEquals(1.0, groupStats.get(1).getAverageIngredients());
+    }
+
+    @Test
+    public void testRecipesPerServingCapacityAndCreationMonth() {
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.NUMBER_OF_SERVING, RecipeGroupBy.CREATION_MONTH));
+
+        assertEquals(Arrays.asList(Map.of("numberOfServing", 4, "creationMonth", "2026-03"),
+                Map.of("numberOfServing", 2, "creationMonth", "2026-04")), groups(groupStats));
+        assertEquals(Arrays.asList(2L, 1L), groupStats.stream().map(RecipeGroupStats::getRecipes).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRecipesPerIngredientAndDishType() {
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.INGREDIENT, RecipeGroupBy.DISH_TYPE));
+
+        assertEquals(Map.of("ingredient", "tomato", "dishType", "veg"), groupStats.get(0).getGroup());
+        assertEquals(2, groupStats.get(0).getRecipes());
+        assertEquals(5, groupStats.size());
+    }
+
+    @Test
+    public void testStoreIsUpdatedFromWriteEvents() {
+        recipeColumnStore.onRecipeSaved(new RecipeSavedEvent(getRecipe(3, "veg", 4, "Tofu"), new Date(MARCH)));
+        recipeColumnStore.onRecipeDeleted(new RecipeDeletedEvent(2));
+
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.DISH_TYPE, RecipeGroupBy.CREATION_MONTH));
+        assertEquals(Arrays.asList(Map.of("dishType", "veg", "creationMonth", "2026-03")), groups(groupStats));
+        assertEquals(2, groupStats.get(0).getRecipes());
+        assertEquals(2, recipeColumnStore.size());
+    }
+
+    @Test
+    public void testDeadSlotsAreCompacted() {
+        for(int i = 0; i < 3000; i++)
+            recipeColumnStore.onRecipeSaved(new RecipeSavedEvent(getRecipe(2, i % 2 == 0 ? "veg" : "vegan", 2, "Garlic", "Onion"), new Date(APRIL)));
+
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.INGREDIENT));
+        assertEquals(5, groupStats.size());
+        assertEquals(1, groupStats.stream().mapToLong(RecipeGroupStats::getRecipes).max().getAsLong());
+        assertEquals(Set.of("veg", "vegan", "nonveg"), recipeColumnStore.group(Arrays.asList(RecipeGroupBy.DISH_TYPE)).stream()
+                .map(stats -> stats.getGroup().get("dishType")).collect(Collectors.toSet()));
+        assertEquals(3, recipeColumnStore.size());
+    }
+
+    @Test
+    public void testNewRecipeKeepsItsCreationDate() {
+        recipeColumnStore.onRecipeSaved(new RecipeSavedEvent(getRecipe(4, "vegan", 2, "Tofu"), new Date(APRIL)));
+
+        var groupStats = recipeColumnStore.group(Arrays.asList(RecipeGroupBy.CREATION_MONTH));
+        assertEquals(Map.of("creationMonth", "2026-04"), groupStats.get(1).getGroup());
+        assertEquals(2, groupStats.get(1).getRecipes());
+    }
+
+    @Test
+    public void testRecipesDeletedWhileLoadingAreNotLoaded() {
+        var loadingStore = new RecipeColumnStore();
+        loadingStore.load(1, "veg", 4, MARCH, Arrays.asList("Tomato"));
+        // Deleted after the loader read both rows, one of them not added yet
+        loadingStore.onRecipeDeleted(new RecipeDeletedEvent(1));
+        loadingStore.onRecipeDeleted(new RecipeDeletedEvent(2));
+        loadingStore.load(2, "veg", 2, APRIL, Arrays.asList("Garlic"));
+        loadingStore.load(3, "nonveg", 4, MARCH, Arrays.asList("Chicken"));
+        loadingStore.markReady();
+
+        assertEquals(1, loadingStore.size());
+        assertEquals(Arrays.asList(Map.of("dishType", "nonveg")), groups(loadingStore.group(Arrays.asList(RecipeGroupBy.DISH_TYPE))));
+    }
+
+    private List<Map<String, Object>> groups(List<RecipeGroupStats> groupStats) {
+        return groupStats.stream().map(RecipeGroupStats::getGroup).collect(Collectors.toList());
+    }
+
+    private Recipe getRecipe(Integer id, String type, Integer servingCapacity, String... ingredientNames) {
+        var recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName("Recipe " + id);
+        recipe.setType(type);
+        recipe.setServingCapacity(servingCapacity);
+        recipe.setInstruction("Cook");
+        recipe.setIngredientList(Arrays.stream(ingredientNames)
+                .map(name -> new Ingredient(null, name, "1 nos"))
+                .collect(Collectors.toList()));
+        return recipe;
+    }
+}
@@ -0,0 +1,65 @@
+package com.recipes.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccessLogFilterTest {
+
+    private final AccessLogFilter accessLogFilter = new AccessLogFilter();
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger("com.recipes.access");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(accessLogFilter, "slowRequestMillis", 1000L);
+        appender.start();
+        accessLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accessLogger.detachAppender(appender);
+    }
+
+    @Test
+    public void testUnsampledRequestIsNotLogged() throws Exception {
+        ReflectionTestUtils.setField(accessLogFilter, "sampleRate", 0.0);
+        accessLogFilter.doFilter(new MockHttpServletRequest("GET", "/api/recipe/1"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void testServerErrorIsAlwaysLogged() throws Exception {
+        ReflectionTestUtils.setField(accessLogFilter, "sampleRate", 0.0);
+        var response = new MockHttpServletResponse();
+        response.setStatus(500);
+        accessLogFilter.doFilter(new MockHttpServletRequest("PUT", "/api/recipe"), response, new MockFilterChain());
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("method=PUT uri=/api/recipe query=null status=500 durationMs="));
+    }
+
+    @Test
+    public void testSampledRequestIsLogged() throws Exception {
+        ReflectionTestUtils.setField(accessLogFilter, "sampleRate", 1.0);
+        var request = new MockHttpServletRequest("GET", "/api/search/recipe");
+        request.setQueryString("dishType=veg");
+        accessLogFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("query=dishType=veg status=200"));
+    }
+}
@@ -1,19 +1,40 @@
 package com.recipes.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.recipes.pojos.Ingredient;
+import com.recipes.exception.BadRequestException;
+import com.recipes.exception.PreconditionFailedException;
 import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipeFacets;
+import com.recipes.pojos.RecipePatch;
+import com.recipes.pojos.RecipeSearchCriteria;
 import com.recipes.service.RecipesService;
+import com.recipes.service.SerializedRecipe;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -24,6 +45,9 @@ public class RecipesControllerTest {
     @Mock
     RecipesService recipesService;
 
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     RecipesController recipesController;
 
@@ -39,20 +63,64 @@ public class RecipesControllerTest {
 
     @Test
     public void testGetRecipe() {
-        Mockito.when(recipesService.getRecipe(any(Integer.class))).thenReturn(getRecipe());
-        var responseEntity = recipesController.getRecipe(1);
+        var json = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        Mockito.when(recipesService.getSerializedRecipe(1)).thenReturn(new SerializedRecipe(getRecipe(), json, null));
+        var responseEntity = recipesController.getRecipe(1, "gzip", null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
-        var recipe = responseEntity.getBody();
-        verifyResults(recipe);
+        assertEquals("\"3\"", responseEntity.getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertSame(json, responseEntity.getBody());
+    }
+
+    @Test
+    public void testGetRecipeSendsPrecompressedJson() {
+        var json = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        var gzippedJson = new byte[]{31, -117};
+        Mockito.when(recipesService.getSerializedRecipe(1)).thenReturn(new SerializedRecipe(getRecipe(), json, gzippedJson));
+
+        var responseEntity = recipesController.getRecipe(1, "deflate, gzip;q=0.8", null);
+        assertEquals("gzip", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"3-gz\"", responseEntity.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), responseEntity.getHeaders().getVary());
+        assertSame(gzippedJson, responseEntity.getBody());
+
+        assertSame(json, recipesController.getRecipe(1, "gzip;q=0", null).getBody());
+        assertSame(json, recipesController.getRecipe(1, "GZIP; Q=0.0", null).getBody());
+        assertSame(json, recipesController.getRecipe(1, null, null).getBody());
+    }
+
+    @Test
+    public void testGetRecipeNotModifiedForEitherCoding() {
+        var json = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        Mockito.when(recipesService.getSerializedRecipe(1)).thenReturn(new SerializedRecipe(getRecipe(), json, new byte[]{31, -117}));
+
+        var gzippedNotModified = recipesController.getRecipe(1, "gzip", "\"3\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, gzippedNotModified.getStatusCode());
+        assertEquals("\"3-gz\"", gzippedNotModified.getHeaders().getETag());
+        assertNull(gzippedNotModified.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, recipesController.getRecipe(1, null, "\"2\", W/\"3-gz\"").getStatusCode());
+        assertEquals(HttpStatus.OK, recipesController.getRecipe(1, "gzip", "\"2-gz\"").getStatusCode());
+    }
+
+    @Test
+    public void testGetRecipeInBinaryFormatsHasFormatETags() {
+        Mockito.when(recipesService.getRecipe(1)).thenReturn(getRecipe());
+
+        var cborResponse = recipesController.getRecipeAsCbor(1);
+        assertEquals("\"3-cbor\"", cborResponse.getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_CBOR, cborResponse.getHeaders().getContentType());
+        assertEquals("\"3-x-jackson-smile\"", recipesController.getRecipeAsSmile(1).getHeaders().getETag());
     }
 
     @Test
     public void testGetAllRecipes() {
-        Mockito.when(recipesService.getAllRecipes()).thenReturn(Arrays.asList(getRecipe(), getRecipe()));
-        var responseEntity = recipesController.getAllRecipes();
+        Mockito.when(recipesService.getAllRecipes(null, 100)).thenReturn(Arrays.asList(getRecipe(), getRecipe()));
+        var responseEntity = recipesController.getAllRecipes(null, 100);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNull(responseEntity.getHeaders().getFirst(RecipesController.NEXT_AFTER_ID_HEADER));
         var recipes = responseEntity.getBody();
         assertEquals(2, recipes.size());
 
@@ -61,16 +129,74 @@ public class RecipesControllerTest {
         verifyResults(recipe);
     }
 
+    @Test
+    public void testGetAllRecipesWhenPageIsFull() {
+        Mockito.when(recipesService.getAllRecipes(0, 2)).thenReturn(Arrays.asList(getRecipe(), getRecipe()));
+        var responseEntity = recipesController.getAllRecipes(0, 2);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst(RecipesController.NEXT_AFTER_ID_HEADER));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamAllRecipes() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Recipe> consumer = invocation.getArgument(1);
+            consumer.accept(getRecipe());
+            consumer.accept(getRecipe());
+            return null;
+        }).when(recipesService).streamAllRecipes(any(), any(Consumer.class));
+        var responseEntity = recipesController.streamAllRecipes(null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        var outputStream = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(outputStream);
+        var lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        verifyResults(objectMapper.readValue(lines[1], Recipe.class));
+    }
+
     @Test
     public void testModifyRecipe() {
         Mockito.when(recipesService.modifyExistingRecipe(any(Recipe.class))).thenReturn(getRecipe());
-        var recipeResponseEntity = recipesController.modifyRecipe(getRecipe());
+        var recipeResponseEntity = recipesController.modifyRecipe(getRecipe(), null);
 
         assertEquals(HttpStatus.OK, recipeResponseEntity.getStatusCode());
+        assertEquals("\"3\"", recipeResponseEntity.getHeaders().getETag());
         var recipe = recipeResponseEntity.getBody();
         verifyResults(recipe);
     }
 
+    @Test
+    public void testPatchRecipe() {
+        Mockito.when(recipesService.patchRecipe(eq(1), any(RecipePatch.class))).thenReturn(getRecipe());
+        var recipePatch = new RecipePatch();
+        recipePatch.setInstruction("Instruction");
+        var recipeResponseEntity = recipesController.patchRecipe(1, recipePatch, "\"3\"");
+
+        assertEquals(HttpStatus.OK, recipeResponseEntity.getStatusCode());
+        verifyResults(recipeResponseEntity.getBody());
+        assertEquals(3, recipePatch.getVersion().intValue());
+    }
+
+    @Test
+    public void testModifyRecipeWithETagOfAnyRepresentation() {
+        var recipe = getRecipe();
+        Mockito.when(recipesService.modifyExistingRecipe(any(Recipe.class))).thenReturn(getRecipe());
+        for(String eTag : List.of("\"4-gz\"", "\"5-cbor\"", "\"6-x-jackson-smile\"")) {
+            recipesController.modifyRecipe(recipe, eTag);
+            assertEquals(eTag.replaceAll("\\D", ""), recipe.getVersion().toString());
+        }
+        assertThrows(PreconditionFailedException.class, () -> recipesController.modifyRecipe(getRecipe(), "\"3-xml\""));
+    }
+
+    @Test
+    public void testModifyRecipeWithMalformedIfMatch() {
+        assertThrows(PreconditionFailedException.class, () -> recipesController.modifyRecipe(getRecipe(), "W/\"3\""));
+        verifyNoInteractions(recipesService);
+    }
+
     @Test
     public void testDeleteRecipe() {
         doNothing().when(recipesService).deleteRecipe(any(Integer.class));
@@ -82,8 +208,8 @@ public class RecipesControllerTest {
 
     @Test
     public void testSearchRecipe() {
-        Mockito.when(recipesService.searchRecipe(anyString(), anyInt(), anyString(), anyBoolean(), anyString())).thenReturn(Arrays.asList(getRecipe()));
-        var responseEntity = recipesController.searchRecipe("nonveg", 4, "Ingredient1", true, "Instruction 1");
+        Mockito.when(recipesService.searchRecipe(any(RecipeSearchCriteria.class))).thenReturn(Arrays.asList(getRecipe()));
+        var responseEntity = recipesController.searchRecipe("nonveg", 4, "Ingredient1", true, "Instruction 1", null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(1, responseEntity.getBody().size());
@@ -91,6 +217,41 @@ public class RecipesControllerTest {
         verifyResults(recipe);
     }
 
+    @Test
+    public void testSearchRecipeWithIngredientLists() {
+        var criteriaCaptor = ArgumentCaptor.forClass(RecipeSearchCriteria.class);
+        Mockito.when(recipesService.searchRecipe(criteriaCaptor.capture())).thenReturn(Arrays.asList(getRecipe()));
+        recipesController.searchRecipe(null, null, "Garlic", false, null,
+                Arrays.asList("Tomato", "Basil"), Arrays.asList("Onion"));
+
+        var criteria = criteriaCaptor.getValue();
+        assertEquals(Arrays.asList("Tomato", "Basil"), criteria.getIncludedIngredients());
+        assertEquals(Arrays.asList("Onion", "Garlic"), criteria.getExcludedIngredients());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchRecipeFacets() {
+        var facetsCaptor = ArgumentCaptor.forClass(Set.class);
+        var recipeFacets = new RecipeFacets();
+        Mockito.when(recipesService.searchFacets(any(RecipeSearchCriteria.class), facetsCaptor.capture(), eq(5))).thenReturn(recipeFacets);
+
+        var responseEntity = recipesController.searchRecipeFacets("veg", null, null, true, null, null, null, null, 5);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertSame(recipeFacets, responseEntity.getBody());
+        assertEquals(EnumSet.allOf(RecipeFacet.class), facetsCaptor.getValue());
+
+        recipesController.searchRecipeFacets("veg", null, null, true, null, null, null, Arrays.asList(" INGREDIENT", "dishType"), 5);
+        assertEquals(EnumSet.of(RecipeFacet.INGREDIENT, RecipeFacet.DISH_TYPE), facetsCaptor.getValue());
+    }
+
+    @Test
+    public void testSearchRecipeFacetsWithUnsupportedFacet() {
+        assertThrows(BadRequestException.class, () -> recipesController.searchRecipeFacets(null, null, null, true, null,
+                null, null, Arrays.asList("dishType", "colour"), 5));
+        verifyNoInteractions(recipesService);
+    }
+
     private Recipe getRecipe() {
         var ingredient = new Ingredient();
         ingredient.setName("Ingredient 1");
@@ -102,6 +263,7 @@ public class RecipesControllerTest {
         recipe.setServingCapacity(4);
         recipe.setInstruction("Instruction");
         recipe.setIngredientList(Arrays.asList(ingredient));
+        recipe.setVersion(3);
 
         return recipe;
     }
@@ -0,0 +1,33 @@
+package com.recipes.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VaryByAcceptFilterTest {
+
+    private final VaryByAcceptFilter varyByAcceptFilter = new VaryByAcceptFilter();
+
+    @Test
+    public void testApiResponsesVaryByAccept() throws Exception {
+        var response = new MockHttpServletResponse();
+        varyByAcceptFilter.doFilter(new MockHttpServletRequest("GET", "/api/recipe/1"), response, new MockFilterChain());
+
+        assertEquals(List.of(HttpHeaders.ACCEPT), response.getHeaders(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testOtherResponsesAreLeftAlone() throws Exception {
+        var response = new MockHttpServletResponse();
+        varyByAcceptFilter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+
+        assertTrue(response.getHeaders(HttpHeaders.VARY).isEmpty());
+    }
+}
@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -34,4 +35,12 @@ public class GlobalExceptionHandlerTest {
         assertTrue(responseEntity.hasBody());
     }
 
+    @Test
+    public void testHandleOptimisticLockingFailureException() {
+        var ex = new ObjectOptimisticLockingFailureException(Object.class, 1);
+        var responseEntity = globalExceptionHandler.handleOptimisticLockingFailureException(ex);
+        assertEquals(HttpStatus.PRECONDITION_FAILED,responseEntity.getStatusCode());
+        assertTrue(((ErrorResponse) responseEntity.getBody()).getMessage().contains(ErrorConstants.RECIPE_VERSION_MISMATCH));
+    }
+
 }
@@ -0,0 +1,82 @@
+package com.recipes.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs outside a test transaction, so the writers below commit like two requests would.
+ */
+@DataJpaTest
+@Import(IngredientDictionary.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IngredientDictionaryTest {
+
+    private static final String NEW_NAME = "concurrent ingredient";
+
+    @Autowired
+    IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM INGREDIENT_NAME WHERE NAME LIKE 'concurrent ingredient%'");
+    }
+
+    @Test
+    public void testSameNewNameInsertedConcurrentlyGetsOneId() throws Exception {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var firstInserted = new CountDownLatch(1);
+        var commitFirst = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            var nameIds = ingredientDictionary.nameIds(List.of(NEW_NAME, "concurrent ingredient 1"));
+            firstInserted.countDown();
+            await(commitFirst);
+            return nameIds;
+        }));
+        await(firstInserted);
+        // The second writer misses the uncommitted name, so its insert waits for the first transaction and then fails
+        var second = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status ->
+                ingredientDictionary.nameIds(List.of("Concurrent  Ingredient", "concurrent ingredient 2"))));
+        Thread.sleep(300);
+        commitFirst.countDown();
+
+        var firstIds = first.get(10, TimeUnit.SECONDS);
+        var secondIds = second.get(10, TimeUnit.SECONDS);
+        assertEquals(firstIds.get(NEW_NAME), secondIds.get(NEW_NAME));
+        assertEquals(2, secondIds.size());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INGREDIENT_NAME WHERE NAME LIKE 'concurrent ingredient%'", Integer.class));
+        assertEquals(secondIds.get("concurrent ingredient 2"), ingredientDictionary.findCached("concurrent ingredient 2"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if(!latch.await(10, TimeUnit.SECONDS))
+                throw new IllegalStateException("Timed out waiting for the other writer");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
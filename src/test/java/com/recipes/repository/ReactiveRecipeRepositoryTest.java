@@ -0,0 +1,127 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.search.InstructionSearchCases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = "recipes.search.index.enabled=false")
+public class ReactiveRecipeRepositoryTest {
+
+    @Autowired
+    ReactiveRecipeRepository reactiveRecipeRepository;
+
+    @Autowired
+    RecipeRepository recipeRepository;
+
+    @Autowired
+    IngredientDictionary ingredientDictionary;
+
+    private final List<Integer> recipeIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        recipeIds.add(save(getRecipeEntity("Tea", "Milk", "Sugar")));
+        recipeIds.add(save(getRecipeEntity("Toast")));
+        recipeIds.add(save(getRecipeEntity("Porridge", "Oats", "Milk", "Salt")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recipeIds.forEach(recipeRepository::deleteById);
+    }
+
+    private Integer save(RecipeEntity recipeEntity) {
+        ingredientDictionary.assignNameIds(recipeEntity.getIngredientEntityList());
+        return recipeRepository.save(recipeEntity).getId();
+    }
+
+    @Test
+    public void testFindByIdGroupsIngredientsIntoRecipe() {
+        var recipe = reactiveRecipeRepository.findById(recipeIds.get(0)).block();
+
+        assertEquals("Tea", recipe.getName());
+        assertEquals(0, recipe.getVersion());
+        assertEquals(List.of("Milk", "Sugar"), ingredientNames(recipe));
+        assertEquals(List.of(), ingredientNames(reactiveRecipeRepository.findById(recipeIds.get(1)).block()));
+        assertNull(reactiveRecipeRepository.findById(-1).block());
+    }
+
+    @Test
+    public void testStreamRecipesAfterReadsPagesOnDemand() {
+        var emitted = new AtomicInteger();
+        var recipes = reactiveRecipeRepository.streamRecipesAfter(recipeIds.get(0) - 1, 1)
+                .doOnNext(recipe -> emitted.incrementAndGet())
+                .take(2)
+                .collectList().block();
+
+        assertEquals(recipeIds.subList(0, 2), recipes.stream().map(Recipe::getId).collect(Collectors.toList()));
+        assertEquals(2, emitted.get());
+        assertEquals(recipeIds, reactiveRecipeRepository.streamRecipesAfter(recipeIds.get(0) - 1, 2)
+                .map(Recipe::getId).collectList().block());
+    }
+
+    @Test
+    public void testSearchAppliesIngredientFilters() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType("veg");
+        criteria.getIncludedIngredients().add(" MILK ");
+        criteria.getExcludedIngredients().add("salt");
+
+        var recipes = reactiveRecipeRepository.search(criteria).collectList().block();
+
+        assertEquals(1, recipes.size());
+        assertEquals("Tea", recipes.get(0).getName());
+        assertEquals(List.of("Milk", "Sugar"), ingredientNames(recipes.get(0)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.recipes.search.InstructionSearchCases#cases")
+    public void testInstructionSearchMatchesIndexSemantic(String instructionSearch, List<Integer> expectedIndexes) {
+        for(int i = 0; i < InstructionSearchCases.INSTRUCTIONS.size(); i++) {
+            var recipeEntity = getRecipeEntity(InstructionSearchCases.recipeName(i));
+            recipeEntity.setType(InstructionSearchCases.DISH_TYPE);
+            recipeEntity.setInstruction(InstructionSearchCases.INSTRUCTIONS.get(i));
+            recipeIds.add(save(recipeEntity));
+        }
+
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType(InstructionSearchCases.DISH_TYPE);
+        criteria.setInstructionSearch(instructionSearch);
+        var recipes = reactiveRecipeRepository.search(criteria).collectList().block();
+        assertEquals(InstructionSearchCases.recipeNames(expectedIndexes),
+                recipes.stream().map(Recipe::getName).sorted().collect(Collectors.toList()));
+    }
+
+    private static List<String> ingredientNames(Recipe recipe) {
+        return recipe.getIngredientList().stream().map(Ingredient::getName).collect(Collectors.toList());
+    }
+
+    private RecipeEntity getRecipeEntity(String name, String... ingredientNames) {
+        var recipeEntity = new RecipeEntity();
+        recipeEntity.setName(name);
+        recipeEntity.setType("veg");
+        recipeEntity.setServingCapacity(4);
+        recipeEntity.setInstruction("Instruction");
+        for(String ingredientName : ingredientNames)
+            recipeEntity.getIngredientEntityList().add(new IngredientEntity(null, ingredientName, "1 nos", recipeEntity));
+        return recipeEntity;
+    }
+}
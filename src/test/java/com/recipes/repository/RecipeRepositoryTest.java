@@ -0,0 +1,267 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.search.InstructionSearchCases;
+import com.recipes.utils.RecipeMapper;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(IngredientDictionary.class)
+public class RecipeRepositoryTest {
+
+    private static final int NUMBER_OF_RECIPES = 25;
+    private static final int INGREDIENTS_PER_RECIPE = 3;
+
+    @Autowired
+    RecipeRepository recipeRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < NUMBER_OF_RECIPES; i++)
+            save(getRecipeEntity(i));
+        var specialRecipe = getRecipeEntity(NUMBER_OF_RECIPES);
+        specialRecipe.getIngredientEntityList().add(new IngredientEntity(null, "Special 3", "1 nos", specialRecipe));
+        specialRecipe.setType("special");
+        save(specialRecipe);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testFindRecipesAfterUsesTwoStatements() {
+        var recipes = mapRecipes(recipeRepository.findRecipesAfter(0, PageRequest.ofSize(NUMBER_OF_RECIPES)));
+
+        verifyRecipes(recipes, NUMBER_OF_RECIPES);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindAllBySpecificationUsesOneStatement() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType("veg");
+        criteria.setInstructionSearch("Instruction");
+        criteria.setIncludedIngredients(Arrays.asList("ingredient 1", "Ingredient 2"));
+        var recipes = mapRecipes(recipeRepository.findAll(RecipeSpecifications.matching(criteria)));
+
+        verifyRecipes(recipes, NUMBER_OF_RECIPES);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindAllBySpecificationWithIngredients() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setNumberOfServing(4);
+        criteria.setIncludedIngredients(Arrays.asList("Special 3", "ingredient 0"));
+        var recipes = mapRecipes(recipeRepository.findAll(RecipeSpecifications.matching(criteria)));
+
+        assertEquals(1, recipes.size());
+        assertEquals(INGREDIENTS_PER_RECIPE + 1, recipes.get(0).getIngredientList().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindAllBySpecificationWithoutIngredients() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setExcludedIngredients(Arrays.asList("special 3", "saffron"));
+        var recipes = mapRecipes(recipeRepository.findAll(RecipeSpecifications.matching(criteria)));
+
+        assertEquals(NUMBER_OF_RECIPES, recipes.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testIngredientNameIdFollowsCanonicalName() {
+        var recipeEntity = getRecipeEntity(NUMBER_OF_RECIPES + 1);
+        var ingredientEntities = recipeEntity.getIngredientEntityList();
+        ingredientEntities.get(0).setName("  INGREDIENT \t 0 ");
+        ingredientEntities.get(1).setName("Special 3");
+        ingredientEntities.get(2).setName("Saffron");
+        save(recipeEntity);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(ingredientDictionary.find("ingredient 0"), ingredientEntities.get(0).getNameId());
+        assertEquals(ingredientDictionary.find("special 3"), ingredientEntities.get(1).getNameId());
+        assertEquals(ingredientDictionary.find("saffron"), ingredientEntities.get(2).getNameId());
+        var criteria = new RecipeSearchCriteria();
+        criteria.setIncludedIngredients(List.of("special  3"));
+        assertEquals(2, recipeRepository.findAll(RecipeSpecifications.matching(criteria)).size());
+    }
+
+    @Test
+    public void testNameIdsAreResolvedInOneLookupAndOneInsert() {
+        var names = new ArrayList<String>();
+        for(int i = 0; i < IngredientDictionary.LOOKUP_CHUNK_SIZE + 1; i++)
+            names.add("New ingredient " + i);
+        names.add("INGREDIENT 1");
+        var storedId = ingredientDictionary.find("ingredient 1");
+        statistics.clear();
+
+        var nameIds = ingredientDictionary.nameIds(names);
+
+        assertEquals(names.size(), nameIds.size());
+        assertEquals(storedId, nameIds.get("ingredient 1"));
+        // One lookup per chunk of the names missing from memory, then the new names are inserted together with JDBC
+        assertEquals(2, statistics.getQueryExecutionCount());
+        assertEquals(names.size(), new HashSet<>(nameIds.values()).size());
+        assertEquals(IngredientDictionary.LOOKUP_CHUNK_SIZE + 1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INGREDIENT_NAME WHERE NAME LIKE 'new ingredient %'", Integer.class));
+        // The test transaction never commits, so the new names stay out of memory
+        assertNull(ingredientDictionary.findCached("new ingredient 0"));
+    }
+
+    @Test
+    public void testFacetCountsAreGroupedInSql() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setNumberOfServing(4);
+        criteria.setExcludedIngredients(List.of("saffron"));
+
+        assertEquals(NUMBER_OF_RECIPES + 1, recipeRepository.count(RecipeSpecifications.filtering(criteria)));
+        assertEquals(Map.of("veg", (long) NUMBER_OF_RECIPES, "special", 1L), recipeRepository.countByDishType(criteria));
+        assertEquals(Map.of(4, NUMBER_OF_RECIPES + 1L), recipeRepository.countByNumberOfServing(criteria));
+        var ingredientCounts = recipeRepository.countTopIngredients(criteria, INGREDIENTS_PER_RECIPE);
+        assertEquals(List.of("ingredient 0", "ingredient 1", "ingredient 2"), List.copyOf(ingredientCounts.keySet()));
+        assertEquals(Set.of(NUMBER_OF_RECIPES + 1L), Set.copyOf(ingredientCounts.values()));
+        // One statement per facet, no recipe or ingredient is read
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        criteria.setIncludedIngredients(List.of("SPECIAL 3"));
+        assertEquals(Map.of("ingredient 0", 1L, "ingredient 1", 1L, "ingredient 2", 1L, "special 3", 1L),
+                recipeRepository.countTopIngredients(criteria, 10));
+        assertEquals(Map.of("special", 1L), recipeRepository.countByDishType(criteria));
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.recipes.search.InstructionSearchCases#cases")
+    public void testInstructionSearchMatchesIndexSemantic(String instructionSearch, List<Integer> expectedIndexes) {
+        for(int i = 0; i < InstructionSearchCases.INSTRUCTIONS.size(); i++) {
+            var recipeEntity = getRecipeEntity(i);
+            recipeEntity.setName(InstructionSearchCases.recipeName(i));
+            recipeEntity.setType(InstructionSearchCases.DISH_TYPE);
+            recipeEntity.setInstruction(InstructionSearchCases.INSTRUCTIONS.get(i));
+            save(recipeEntity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType(InstructionSearchCases.DISH_TYPE);
+        criteria.setInstructionSearch(instructionSearch);
+        var recipes = recipeRepository.findAll(RecipeSpecifications.matching(criteria));
+        assertEquals(InstructionSearchCases.recipeNames(expectedIndexes),
+                recipes.stream().map(RecipeEntity::getName).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testInstructionTokensBackfillFillsExistingRecipes() {
+        entityManager.createNativeQuery("UPDATE RECIPE SET INSTRUCTION_TOKENS = NULL").executeUpdate();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try {
+                new InstructionTokensBackfill().execute(DatabaseFactory.getInstance()
+                        .findCorrectDatabaseImplementation(new JdbcConnection(connection)));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        var criteria = new RecipeSearchCriteria();
+        criteria.setInstructionSearch("INSTRUCTION 7");
+        var recipeEntities = recipeRepository.findAll(RecipeSpecifications.matching(criteria));
+        assertEquals(1, recipeEntities.size());
+        assertEquals("Recipe 7", recipeEntities.get(0).getName());
+        assertEquals(" instruction 7 ", recipeEntities.get(0).getInstructionTokens());
+    }
+
+    @Test
+    public void testFindAllUsesOneStatement() {
+        var recipes = mapRecipes(recipeRepository.findAll());
+
+        verifyRecipes(recipes.subList(0, NUMBER_OF_RECIPES), NUMBER_OF_RECIPES);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testStreamRecipesAfterUsesOneStatement() {
+        List<Recipe> recipes;
+        try (var recipeEntities = recipeRepository.streamRecipesAfter(0)) {
+            recipes = recipeEntities.limit(NUMBER_OF_RECIPES)
+                    .map(RecipeMapper.INSTANCE::recipeEntityToRecipe).collect(Collectors.toList());
+        }
+
+        verifyRecipes(recipes, NUMBER_OF_RECIPES);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private List<Recipe> mapRecipes(List<RecipeEntity> recipeEntities) {
+        return recipeEntities.stream().map(RecipeMapper.INSTANCE::recipeEntityToRecipe).collect(Collectors.toList());
+    }
+
+    private void verifyRecipes(List<Recipe> recipes, int expectedSize) {
+        assertEquals(expectedSize, recipes.size());
+        assertEquals(expectedSize, recipes.stream().map(Recipe::getId).distinct().count());
+        recipes.forEach(recipe -> assertEquals(INGREDIENTS_PER_RECIPE, recipe.getIngredientList().size()));
+    }
+
+    private void save(RecipeEntity recipeEntity) {
+        ingredientDictionary.assignNameIds(recipeEntity.getIngredientEntityList());
+        recipeRepository.save(recipeEntity);
+    }
+
+        private RecipeEntity getRecipeEntity(int index) {
+        var recipeEntity = new RecipeEntity();
+        recipeEntity.setName("Recipe " + index);
+        recipeEntity.setType("veg");
+        recipeEntity.setServingCapacity(4);
+        recipeEntity.setInstruction("Instruction " + index);
+
+        var ingredientEntities = new ArrayList<IngredientEntity>();
+        for (int i = 0; i < INGREDIENTS_PER_RECIPE; i++)
+            ingredientEntities.add(new IngredientEntity(null, "Ingredient " + i, "1 nos", recipeEntity));
+        recipeEntity.setIngredientEntityList(ingredientEntities);
+
+        return recipeEntity;
+    }
+}
@@ -0,0 +1,33 @@
+package com.recipes.repository;
+
+import com.recipes.entities.IngredientNameEntity;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * An {@link IngredientDictionary} over a mocked repository that already holds every name it is asked for, for tests
+ * and benchmarks of the search index that run without a database.
+ */
+public final class TestIngredientDictionary {
+
+    private TestIngredientDictionary() {
+    }
+
+    public static IngredientDictionary create() {
+        var nextId = new AtomicInteger();
+        Map<String, Integer> ids = new ConcurrentHashMap<>();
+        var ingredientNameRepository = Mockito.mock(IngredientNameRepository.class);
+        Mockito.when(ingredientNameRepository.findByName(anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            return Optional.of(new IngredientNameEntity(ids.computeIfAbsent(name, n -> nextId.incrementAndGet()), name));
+        });
+        return new IngredientDictionary(ingredientNameRepository, Mockito.mock(JdbcTemplate.class));
+    }
+}
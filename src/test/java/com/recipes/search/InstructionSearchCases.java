@@ -0,0 +1,49 @@
+package com.recipes.search;
+
+import org.junit.jupiter.params.provider.Arguments;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Instruction searches run against both the search index and the database queries, which must return the same
+ * recipes for them: every search word has to start a word of the instruction. The recipes carry their own dish type
+ * so they can be told apart from other test data.
+ */
+public final class InstructionSearchCases {
+
+    public static final String DISH_TYPE = "instruction-search";
+
+    public static final List<String> INSTRUCTIONS = List.of(
+            "Chop the tomatoes and boil",
+            "Fry the garlic",
+            "Grill the chicken, then BOIL",
+            "Parboiled rice with garlic-butter");
+
+    private InstructionSearchCases() {
+    }
+
+    public static String recipeName(int index) {
+        return "Instruction case " + index;
+    }
+
+    public static Stream<Arguments> cases() {
+        return Stream.of(
+                Arguments.of("boil", List.of(0, 2)),
+                Arguments.of("parboil", List.of(3)),
+                Arguments.of("oil", List.of()),
+                Arguments.of("gar", List.of(1, 3)),
+                Arguments.of("Boil CHICKEN", List.of(2)),
+                Arguments.of("garlic butter", List.of(3)),
+                Arguments.of("butter-garlic", List.of(3)),
+                Arguments.of("tomato", List.of(0)),
+                Arguments.of("fry, the", List.of(1)),
+                Arguments.of("saffron", List.of()),
+                Arguments.of(" ", List.of(0, 1, 2, 3)));
+    }
+
+    public static List<String> recipeNames(List<Integer> indexes) {
+        return indexes.stream().map(InstructionSearchCases::recipeName).sorted().collect(Collectors.toList());
+    }
+}
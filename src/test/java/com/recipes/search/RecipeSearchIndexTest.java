@@ -0,0 +1,277 @@
+package com.recipes.search;
+
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.IngredientSuggestion;
+import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipeFacets;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.pojos.ScoredRecipe;
+import com.recipes.repository.TestIngredientDictionary;
+import com.recipes.utils.ParallelRangeExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecipeSearchIndexTest {
+
+    private RecipeSearchIndex recipeSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        recipeSearchIndex = new RecipeSearchIndex(TestIngredientDictionary.create(), ParallelRangeExecutor.SEQUENTIAL);
+        recipeSearchIndex.index(getRecipe(1, "veg", 4, "Chop the tomatoes and boil", "Tomato", "Basil"));
+        recipeSearchIndex.index(getRecipe(2, "veg", 2, "Fry the garlic", "Garlic", "Tomato"));
+        recipeSearchIndex.index(getRecipe(3, "nonveg", 4, "Grill the chicken, then boil", "Chicken", "Garlic"));
+        recipeSearchIndex.markReady();
+    }
+
+    @Test
+    public void testSearchWithoutCriteriaReturnsAllRecipes() {
+        assertEquals(Arrays.asList(1, 2, 3), ids(recipeSearchIndex.search(criteria(null, null, null, true, null))));
+    }
+
+    @Test
+    public void testSearchByDishTypeAndServingCapacity() {
+        assertEquals(Arrays.asList(1), ids(recipeSearchIndex.search(criteria("veg", 4, null, true, null))));
+    }
+
+    @Test
+    public void testSearchByIngredient() {
+        assertEquals(Arrays.asList(1, 2), ids(recipeSearchIndex.search(criteria(null, null, " TOMATO", true, null))));
+        assertEquals(Arrays.asList(3), ids(recipeSearchIndex.search(criteria(null, null, "tomato", false, null))));
+        assertTrue(recipeSearchIndex.search(criteria(null, null, "saffron", true, null)).isEmpty());
+    }
+
+    @Test
+    public void testIngredientNamesAreCanonicalized() {
+        recipeSearchIndex.index(getRecipe(4, "veg", 2, "Toss the leaves", "  Cherry\tTOMATO ", "Basil"));
+
+        assertEquals(Arrays.asList(4), ids(recipeSearchIndex.search(criteria(null, null, "cherry   tomato", true, null))));
+        assertEquals(Arrays.asList(1, 4), ids(recipeSearchIndex.search(criteria(null, null, "BASIL", true, null))));
+    }
+
+    @Test
+    public void testSearchByInstructionTokens() {
+        assertEquals(Arrays.asList(1, 3), ids(recipeSearchIndex.search(criteria(null, null, null, true, "Boil"))));
+        assertEquals(Arrays.asList(3), ids(recipeSearchIndex.search(criteria(null, null, null, true, "boil chicken"))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("com.recipes.search.InstructionSearchCases#cases")
+    public void testInstructionSearchMatchesDatabaseSemantic(String instructionSearch, List<Integer> expectedIndexes) {
+        for(int i = 0; i < InstructionSearchCases.INSTRUCTIONS.size(); i++) {
+            var recipe = getRecipe(100 + i, InstructionSearchCases.DISH_TYPE, 2, InstructionSearchCases.INSTRUCTIONS.get(i));
+            recipe.setName(InstructionSearchCases.recipeName(i));
+            recipeSearchIndex.index(recipe);
+        }
+
+        var recipes = recipeSearchIndex.search(criteria(InstructionSearchCases.DISH_TYPE, null, null, true, instructionSearch));
+        assertEquals(InstructionSearchCases.recipeNames(expectedIndexes),
+                recipes.stream().map(Recipe::getName).sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSearchReturnsCopies() {
+        var recipe = getRecipe(4, "veg", 2, "Toss the leaves", "Basil");
+        recipeSearchIndex.index(recipe);
+        recipe.setType("nonveg");
+
+        var found = recipeSearchIndex.search(criteria("veg", 2, "basil", true, null)).get(0);
+        found.setName("Changed");
+        found.getIngredientList().get(0).setName("Changed");
+        recipeSearchIndex.rankedSearch("leaves", criteria(null, null, null, true, null), 1).get(0).getRecipe().setName("Changed");
+
+        var searched = recipeSearchIndex.search(criteria("veg", 2, "basil", true, null)).get(0);
+        assertEquals("veg", searched.getType());
+        assertEquals("Recipe 4", searched.getName());
+        assertEquals("Basil", searched.getIngredientList().get(0).getName());
+    }
+
+    @Test
+    public void testIndexIsUpdatedFromWriteEvents() {
+        recipeSearchIndex.onRecipeSaved(new RecipeSavedEvent(getRecipe(2, "nonveg", 2, "Fry the fish", "Fish"), new Date()));
+        recipeSearchIndex.onRecipeDeleted(new RecipeDeletedEvent(3));
+
+        assertEquals(Arrays.asList(2), ids(recipeSearchIndex.search(criteria("nonveg", null, null, true, null))));
+        assertTrue(recipeSearchIndex.search(criteria(null, null, "garlic", true, null)).isEmpty());
+        assertTrue(recipeSearchIndex.search(criteria(null, null, null, true, "chicken")).isEmpty());
+        assertEquals(2, recipeSearchIndex.size());
+    }
+
+    @Test
+    public void testWritesDuringLoadAreReplayedOverLoadedRecipes() {
+        var loadingIndex = new RecipeSearchIndex(TestIngredientDictionary.create(), ParallelRangeExecutor.SEQUENTIAL);
+        loadingIndex.index(getRecipe(1, "veg", 4, "Chop the tomatoes", "Tomato"));
+        loadingIndex.onRecipeSaved(new RecipeSavedEvent(getRecipe(2, "vegan", 2, "Fry the tofu", "Tofu"), new Date()));
+        loadingIndex.onRecipeDeleted(new RecipeDeletedEvent(3));
+        // Rows the loader read before the writes above committed
+        loadingIndex.index(getRecipe(2, "veg", 2, "Fry the garlic", "Garlic"));
+        loadingIndex.index(getRecipe(3, "nonveg", 4, "Grill the chicken", "Chicken"));
+        loadingIndex.markReady();
+
+        assertEquals(Arrays.asList(1, 2), ids(loadingIndex.search(criteria(null, null, null, true, null))));
+        assertEquals(Arrays.asList(2), ids(loadingIndex.search(criteria("vegan", null, "tofu", true, null))));
+        assertTrue(loadingIndex.search(criteria(null, null, "garlic", true, null)).isEmpty());
+
+        loadingIndex.onRecipeDeleted(new RecipeDeletedEvent(2));
+        assertEquals(1, loadingIndex.size());
+    }
+
+    @Test
+    public void testSearchWithRequiredAndExcludedIngredients() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setIncludedIngredients(Arrays.asList("Tomato", "basil "));
+        assertEquals(Arrays.asList(1), ids(recipeSearchIndex.search(criteria)));
+
+        criteria.setIncludedIngredients(Arrays.asList("garlic"));
+        criteria.setExcludedIngredients(Arrays.asList("tomato", "saffron"));
+        assertEquals(Arrays.asList(3), ids(recipeSearchIndex.search(criteria)));
+
+        criteria.setIncludedIngredients(Arrays.asList());
+        criteria.setExcludedIngredients(Arrays.asList("garlic", "basil"));
+        assertTrue(recipeSearchIndex.search(criteria).isEmpty());
+    }
+
+    @Test
+    public void testFacetCountsOverMatchingRecipes() {
+        var facets = recipeSearchIndex.facets(criteria(null, null, null, true, null), EnumSet.allOf(RecipeFacet.class), 2);
+        assertEquals(3, facets.getTotal());
+        assertEquals(Map.of("veg", 2L, "nonveg", 1L), facets.getDishType());
+        assertEquals(Arrays.asList(4, 2), List.copyOf(facets.getNumberOfServing().keySet()));
+        assertEquals(Arrays.asList("garlic", "tomato"), List.copyOf(facets.getIngredient().keySet()));
+
+        facets = recipeSearchIndex.facets(criteria("veg", null, null, true, null), EnumSet.of(RecipeFacet.INGREDIENT), 10);
+        assertEquals(2, facets.getTotal());
+        assertNull(facets.getDishType());
+        assertEquals(Map.of("tomato", 2L, "basil", 1L, "garlic", 1L), facets.getIngredient());
+    }
+
+    @Test
+    public void testFacetTopIngredientsMatchCountingEveryIngredient() {
+        var recipes = new ArrayList<Recipe>();
+        for(int id = 10; id < 250; id++) {
+            // Ingredient k is used by about one recipe in k + 1, several of them tie on their counts
+            var ingredientNames = new ArrayList<String>();
+            for(int k = 0; k < 30; k++) {
+                if(id % (k / 3 + 1) == 0)
+                    ingredientNames.add("Ingredient " + k);
+            }
+            var recipe = getRecipe(id, id % 3 == 0 ? "nonveg" : "veg", 3, "Mix", ingredientNames.toArray(String[]::new));
+            recipes.add(recipe);
+            recipeSearchIndex.index(recipe);
+        }
+
+        // The last criteria match fewer recipes than there are ingredients, those are counted from the documents
+        var searches = new LinkedHashMap<RecipeSearchCriteria, Predicate<Recipe>>();
+        searches.put(criteria(null, 3, null, true, null), recipe -> true);
+        searches.put(criteria("veg", 3, null, true, null), recipe -> "veg".equals(recipe.getType()));
+        searches.put(criteria("nonveg", 3, null, true, null), recipe -> "nonveg".equals(recipe.getType()));
+        searches.put(criteria(null, 3, "ingredient 29", true, null), recipe -> recipe.getId() % 10 == 0);
+        searches.forEach((criteria, matching) -> {
+            var expectedCounts = new HashMap<String, Long>();
+            recipes.stream().filter(matching).forEach(recipe -> recipe.getIngredientList().forEach(ingredient ->
+                    expectedCounts.merge(TextAnalyzer.normalizeIngredientName(ingredient.getName()), 1L, Long::sum)));
+            for(int limit : new int[]{1, 4, 5, 10, 100}) {
+                var facets = recipeSearchIndex.facets(criteria, EnumSet.of(RecipeFacet.INGREDIENT), limit);
+                assertEquals(List.copyOf(RecipeFacets.ranked(expectedCounts, limit).entrySet()),
+                        List.copyOf(facets.getIngredient().entrySet()), criteria + " top " + limit);
+            }
+        });
+    }
+
+    @Test
+    public void testRankedSearchOrdersByRelevance() {
+        recipeSearchIndex.index(getRecipe(4, "veg", 2, "Boil the potatoes, boil the peas and mash", "Potato"));
+
+        var scoredRecipes = recipeSearchIndex.rankedSearch("boiled potato", criteria(null, null, null, true, null), 10);
+        assertEquals(Arrays.asList(4, 1, 3), scoredRecipes.stream().map(scoredRecipe -> scoredRecipe.getRecipe().getId())
+                .collect(Collectors.toList()));
+        assertTrue(scoredRecipes.get(0).getScore() > scoredRecipes.get(1).getScore());
+
+        assertEquals(Arrays.asList(4), recipeSearchIndex.rankedSearch("boil", criteria(null, null, null, true, null), 1)
+                .stream().map(ScoredRecipe::getRecipe).map(Recipe::getId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(3), recipeSearchIndex.rankedSearch("boil", criteria("nonveg", null, null, true, null), 10)
+                .stream().map(ScoredRecipe::getRecipe).map(Recipe::getId).collect(Collectors.toList()));
+        assertTrue(recipeSearchIndex.rankedSearch("the and", criteria(null, null, null, true, null), 10).isEmpty());
+    }
+
+    @Test
+    public void testAnalyzerStemsAndDropsStopWords() {
+        assertEquals(Arrays.asList("chop", "tomato", "boil", "onion"), TextAnalyzer.analyze("Chopped the tomatoes, boiling onions"));
+        assertEquals(Arrays.asList("grill", "dish", "berry"), TextAnalyzer.analyze("grilled dishes berries"));
+    }
+
+    @Test
+    public void testSuggestIngredientsByPopularity() {
+        recipeSearchIndex.index(getRecipe(4, "veg", 2, "Grate the carrot", "Carrot"));
+
+        assertEquals(Arrays.asList("tomato"), names(recipeSearchIndex.suggestIngredients(" TOM", 0, 10)));
+        assertEquals(2, recipeSearchIndex.suggestIngredients("tom", 0, 10).get(0).getRecipeCount());
+        assertEquals(Arrays.asList("garlic", "tomato"), names(recipeSearchIndex.suggestIngredients("", 0, 2)));
+        assertEquals(Arrays.asList("basil"), names(recipeSearchIndex.suggestIngredients("basl", 1, 10)));
+        // Exact prefix matches rank before more popular fuzzy ones
+        assertEquals(Arrays.asList("carrot", "garlic"), names(recipeSearchIndex.suggestIngredients("car", 1, 10)));
+        assertTrue(recipeSearchIndex.suggestIngredients("basl", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggestionsFollowRecipeWrites() {
+        recipeSearchIndex.onRecipeDeleted(new RecipeDeletedEvent(3));
+        recipeSearchIndex.onRecipeSaved(new RecipeSavedEvent(getRecipe(1, "veg", 4, "Chop the tomatoes", "Tomato", "Chives"), new Date()));
+
+        assertEquals(Arrays.asList("chives"), names(recipeSearchIndex.suggestIngredients("ch", 0, 10)));
+        assertEquals(1, recipeSearchIndex.suggestIngredients("garlic", 0, 10).get(0).getRecipeCount());
+        assertTrue(recipeSearchIndex.suggestIngredients("bas", 0, 10).isEmpty());
+    }
+
+    private List<String> names(List<IngredientSuggestion> suggestions) {
+        return suggestions.stream().map(IngredientSuggestion::getName).collect(Collectors.toList());
+    }
+
+    private RecipeSearchCriteria criteria(String dishType, Integer numberOfServing, String ingredient,
+                                          boolean ingredientIncluded, String instructionSearch) {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType(dishType);
+        criteria.setNumberOfServing(numberOfServing);
+        criteria.setInstructionSearch(instructionSearch);
+        if(ingredient != null)
+            (ingredientIncluded ? criteria.getIncludedIngredients() : criteria.getExcludedIngredients()).add(ingredient);
+        return criteria;
+    }
+
+    private List<Integer> ids(List<Recipe> recipes) {
+        return recipes.stream().map(Recipe::getId).collect(Collectors.toList());
+    }
+
+    private Recipe getRecipe(Integer id, String type, Integer servingCapacity, String instruction, String... ingredientNames) {
+        var recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName("Recipe " + id);
+        recipe.setType(type);
+        recipe.setServingCapacity(servingCapacity);
+        recipe.setInstruction(instruction);
+        recipe.setIngredientList(Arrays.stream(ingredientNames)
+                .map(name -> new Ingredient(null, name, "1 nos"))
+                .collect(Collectors.toList()));
+        return recipe;
+    }
+}
@@ -0,0 +1,174 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipes.entities.IngredientEntity;
+import com.recipes.entities.RecipeEntity;
+import com.recipes.exception.BadRequestException;
+import com.recipes.exception.ConflictException;
+import com.recipes.pojos.RecipeExportFormat;
+import com.recipes.repository.IngredientDictionary;
+import com.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"recipes.search.index.enabled=false", "recipes.export.checkpoint-interval=1"})
+public class RecipeExportServiceTest {
+
+    @Autowired
+    RecipeExportService recipeExportService;
+
+    @Autowired
+    RecipeRepository recipeRepository;
+
+    @Autowired
+    IngredientDictionary ingredientDictionary;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @TempDir
+    Path exportDirectory;
+
+    private final List<Integer> recipeIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(recipeExportService, "exportDirectory", exportDirectory.toString());
+        recipeIds.add(save(getRecipeEntity("Tea", "Milk", "Sugar")));
+        recipeIds.add(save(getRecipeEntity("Cake, \"plain\"", "Flour")));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recipeIds.forEach(recipeRepository::deleteById);
+    }
+
+    private Integer save(RecipeEntity recipeEntity) {
+        ingredientDictionary.assignNameIds(recipeEntity.getIngredientEntityList());
+        return recipeRepository.save(recipeEntity).getId();
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        var outputStream = new ByteArrayOutputStream();
+        var summary = recipeExportService.export(Channels.newChannel(outputStream), RecipeExportFormat.NDJSON, false,
+                recipeIds.get(0) - 1);
+
+        var lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, summary.getExportedCount());
+        assertEquals(recipeIds.get(1), summary.getLastExportedId());
+    }
+
+    @Test
+    public void testExportCompressedCsv() throws Exception {
+        var outputStream = new ByteArrayOutputStream();
+        recipeExportService.export(Channels.newChannel(outputStream), RecipeExportFormat.CSV, true, recipeIds.get(0) - 1);
+
+        var csv = new String(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        var lines = csv.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("RECIPE_ID,NAME,TYPE,SERVING_CAPACITY,INSTRUCTION,INGREDIENT_ID,INGREDIENT_NAME,INGREDIENT_QUANTITY", lines[0]);
+        assertTrue(lines[1].startsWith(recipeIds.get(0) + ",Tea,veg,4,Instruction,"));
+        assertTrue(lines[3].startsWith(recipeIds.get(1) + ",\"Cake, \"\"plain\"\"\",veg,4,Instruction,"));
+        assertTrue(lines[3].endsWith(",Flour,1 nos"));
+    }
+
+    @Test
+    public void testExportToFileResumesFromCheckpoint() throws Exception {
+        var summary = recipeExportService.exportToFile("full", RecipeExportFormat.NDJSON, true);
+        var fullExport = Files.readAllBytes(exportDirectory.resolve("full.ndjson.gz"));
+        assertFalse(Files.exists(exportDirectory.resolve("full.ndjson.gz.checkpoint")));
+        assertEquals(recipeIds.get(1), summary.getLastExportedId());
+
+        // Simulate an export that failed after the first recipe and left a partly written record behind
+        var resumedFile = exportDirectory.resolve("resumed.ndjson.gz");
+        var allRecipes = readLines(fullExport);
+        Files.write(resumedFile, gzip(allRecipes.get(0) + "\n"));
+        long offset = Files.size(resumedFile);
+        Files.write(resumedFile, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        Files.writeString(exportDirectory.resolve("resumed.ndjson.gz.checkpoint"),
+                "lastExportedId=" + objectMapper.readTree(allRecipes.get(0)).get("id").asInt() + "\noffset=" + offset + "\n");
+
+        var resumedSummary = recipeExportService.exportToFile("resumed", RecipeExportFormat.NDJSON, true);
+
+        assertEquals(allRecipes.size() - 1, resumedSummary.getExportedCount());
+        assertEquals(allRecipes, readLines(Files.readAllBytes(resumedFile)));
+    }
+
+    @Test
+    public void testCompressedExportWithoutRecipesIsValidGzip() throws Exception {
+        var outputStream = new ByteArrayOutputStream();
+        var summary = recipeExportService.export(Channels.newChannel(outputStream), RecipeExportFormat.NDJSON, true,
+                recipeIds.get(1));
+
+        assertEquals(0, summary.getExportedCount());
+        assertEquals(0, new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())).readAllBytes().length);
+    }
+
+    @Test
+    public void testExportToFileRefusesConcurrentExportOfSameFile() throws Exception {
+        var file = exportDirectory.resolve("busy.ndjson.gz");
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             var lock = channel.lock()) {
+            assertThrows(ConflictException.class, () -> recipeExportService.exportToFile("busy", RecipeExportFormat.NDJSON, true));
+        }
+
+        recipeExportService.exportToFile("busy", RecipeExportFormat.NDJSON, true);
+        assertTrue(readLines(Files.readAllBytes(file)).size() >= recipeIds.size());
+    }
+
+    @Test
+    public void testExportToFileRejectsPathNames() {
+        assertThrows(BadRequestException.class,
+                () -> recipeExportService.exportToFile("../etc", RecipeExportFormat.CSV, false));
+    }
+
+    private static List<String> readLines(byte[] gzipped) throws Exception {
+        var content = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8);
+        return List.of(content.split("\n"));
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        var outputStream = new ByteArrayOutputStream();
+        try (var gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+
+    private RecipeEntity getRecipeEntity(String name, String... ingredientNames) {
+        var recipeEntity = new RecipeEntity();
+        recipeEntity.setName(name);
+        recipeEntity.setType("veg");
+        recipeEntity.setServingCapacity(4);
+        recipeEntity.setInstruction("Instruction");
+        for(String ingredientName : ingredientNames)
+            recipeEntity.getIngredientEntityList().add(new IngredientEntity(null, ingredientName, "1 nos", recipeEntity));
+        return recipeEntity;
+    }
+}
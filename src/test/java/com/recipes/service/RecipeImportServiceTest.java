@@ -0,0 +1,114 @@
+package com.recipes.service;
+
+import com.recipes.exception.ErrorConstants;
+import com.recipes.pojos.RecipeImportResult;
+import com.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"recipes.search.index.enabled=false", "recipes.import.batch-size=2"})
+public class RecipeImportServiceTest {
+
+    private static final String VALID_RECIPE = "{\"id\":7,\"name\":\"Tea\",\"type\":\"veg\",\"servingCapacity\":1,"
+            + "\"instruction\":\"Boil\",\"ingredientList\":[{\"id\":3,\"name\":\"Milk\",\"quantity\":\"100 ml\"}]}";
+
+    @Autowired
+    RecipeImportService recipeImportService;
+
+    @Autowired
+    RecipeRepository recipeRepository;
+
+    @Test
+    public void testImportNdjsonReportsFailedRecords() throws Exception {
+        var tooLongName = "x".repeat(60);
+        var ndjson = String.join("\n",
+                VALID_RECIPE,
+                "{\"name\":",
+                "{\"name\":\"\",\"type\":\"veg\",\"instruction\":\"Boil\"}",
+                "",
+                VALID_RECIPE.replace("Tea", tooLongName),
+                VALID_RECIPE,
+                VALID_RECIPE);
+        var countBefore = recipeRepository.count();
+
+        var result = recipeImportService.importNdjson(toStream(ndjson));
+
+        assertEquals(3, result.getImportedCount());
+        assertEquals(3, result.getFailedCount());
+        assertEquals(3, result.getFailures().size());
+        assertFalse(result.isFailuresTruncated());
+        assertEquals(2, result.getFailures().get(0).getRecordNumber());
+        assertEquals(3, result.getFailures().get(1).getRecordNumber());
+        assertEquals("Recipe Name can not be null or empty", result.getFailures().get(1).getMessage());
+        assertEquals(4, result.getFailures().get(2).getRecordNumber());
+        assertEquals(countBefore + 3, recipeRepository.count());
+    }
+
+    @Test
+    public void testImportCapsReportedFailures() throws Exception {
+        var failures = RecipeImportResult.DEFAULT_MAX_REPORTED_FAILURES + 5;
+        var ndjson = String.join("\n", Collections.nCopies(failures, "{\"name\":")) + "\n" + VALID_RECIPE;
+
+        var result = recipeImportService.importNdjson(toStream(ndjson));
+
+        assertEquals(1, result.getImportedCount());
+        assertEquals(failures, result.getFailedCount());
+        assertEquals(RecipeImportResult.DEFAULT_MAX_REPORTED_FAILURES, result.getFailures().size());
+        assertTrue(result.isFailuresTruncated());
+        assertEquals(1, result.getFailures().get(0).getRecordNumber());
+    }
+
+    @Test
+    public void testFailureReasonsDoNotExposeInternals() throws Exception {
+        var ndjson = String.join("\n",
+                "{\"name\":\"Tea\",\"servingCapacity\":\"many\"}",
+                VALID_RECIPE.replace("Tea", "x".repeat(60)));
+
+        var result = recipeImportService.importNdjson(toStream(ndjson));
+
+        assertEquals(2, result.getFailures().size());
+        assertEquals(ErrorConstants.IMPORT_MALFORMED_RECORD + " at line 1, column 33", result.getFailures().get(0).getMessage());
+        assertEquals(ErrorConstants.IMPORT_CONSTRAINT_VIOLATION, result.getFailures().get(1).getMessage());
+    }
+
+    @Test
+    public void testImportRejectsBlankIngredientNames() throws Exception {
+        var ndjson = String.join("\n",
+                VALID_RECIPE.replace("\"Milk\"", "\" \\t \""),
+                VALID_RECIPE.replace("\"Milk\"", "null"),
+                VALID_RECIPE.replace("Milk", "Fresh   MILK"));
+        var countBefore = recipeRepository.count();
+
+        var result = recipeImportService.importNdjson(toStream(ndjson));
+
+        assertEquals(1, result.getImportedCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals("Ingredient Name can not be null or empty", result.getFailures().get(0).getMessage());
+        assertEquals("Ingredient Name can not be null or empty", result.getFailures().get(1).getMessage());
+        assertEquals(countBefore + 1, recipeRepository.count());
+    }
+
+    @Test
+    public void testImportJsonArray() throws Exception {
+        var countBefore = recipeRepository.count();
+
+        var result = recipeImportService.importJsonArray(toStream("[" + VALID_RECIPE + "," + VALID_RECIPE + "," + VALID_RECIPE + "]"));
+
+        assertEquals(3, result.getImportedCount());
+        assertEquals(0, result.getFailures().size());
+        assertEquals(countBefore + 3, recipeRepository.count());
+    }
+
+    private ByteArrayInputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
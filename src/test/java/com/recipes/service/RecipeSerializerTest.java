@@ -0,0 +1,51 @@
+package com.recipes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RecipeSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final RecipeSerializer recipeSerializer = new RecipeSerializer(objectMapper, 1024);
+
+    @Test
+    public void testSmallRecipeIsNotCompressed() throws Exception {
+        var recipe = getRecipe(1, "Short", 0);
+
+        var serializedRecipe = recipeSerializer.serialize(recipe);
+
+        assertSame(recipe, serializedRecipe.getRecipe());
+        assertArrayEquals(objectMapper.writeValueAsBytes(recipe), serializedRecipe.getJson());
+        assertEquals("\"0\"", serializedRecipe.getETag());
+        assertNull(serializedRecipe.getGzippedJson());
+    }
+
+    @Test
+    public void testLargeRecipeIsPrecompressed() throws Exception {
+        var serializedRecipe = recipeSerializer.serialize(getRecipe(1, "Long ".repeat(300), 0));
+
+        assertNotNull(serializedRecipe.getGzippedJson());
+        try (var gzipStream = new GZIPInputStream(new ByteArrayInputStream(serializedRecipe.getGzippedJson()))) {
+            assertArrayEquals(serializedRecipe.getJson(), gzipStream.readAllBytes());
+        }
+    }
+
+    private static Recipe getRecipe(Integer id, String instruction, Integer version) {
+        var ingredients = new ArrayList<>(List.of(new Ingredient(1, "Ingredient 1", "1 nos")));
+        return new Recipe(id, "Recipe " + id, "veg", 2, ingredients, instruction, version);
+    }
+}
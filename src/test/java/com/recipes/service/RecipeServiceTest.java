@@ -1,25 +1,59 @@
 package com.recipes.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.recipes.entities.IngredientEntity;
 import com.recipes.entities.RecipeEntity;
+import com.recipes.events.RecipeDeletedEvent;
+import com.recipes.events.RecipeSavedEvent;
+import com.recipes.exception.BadRequestException;
+import com.recipes.exception.PreconditionFailedException;
 import com.recipes.exception.RecipeNotFoundException;
 import com.recipes.pojos.Ingredient;
 import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacet;
+import com.recipes.pojos.RecipePatch;
+import com.recipes.pojos.RecipeSearchCriteria;
+import com.recipes.repository.IngredientDictionary;
 import com.recipes.repository.RecipeRepository;
+import com.recipes.search.RecipeSearchIndex;
+import com.recipes.utils.RecipeMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +62,27 @@ public class RecipeServiceTest {
     @Mock
     RecipeRepository recipeRepository;
 
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    RecipeSearchIndex recipeSearchIndex;
+
+    @Mock
+    IngredientDictionary ingredientDictionary;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    CacheManager cacheManager = new ConcurrentMapCacheManager(RecipesService.RECIPE_CACHE);
+
+    @Spy
+    RecipeSerializer recipeSerializer = new RecipeSerializer(new ObjectMapper(), 1024);
+
     @InjectMocks
     private RecipesService recipesService;
 
@@ -38,6 +93,7 @@ public class RecipeServiceTest {
         var savedRecipeId =recipesService.createRecipe(recipe);
 
         assertEquals(1, savedRecipeId.intValue());
+        verify(eventPublisher, times(1)).publishEvent(any(RecipeSavedEvent.class));
     }
 
     @Test
@@ -62,10 +118,45 @@ public class RecipeServiceTest {
         });
     }
 
+    @Test
+    public void testGetRecipeAfterCommittedWriteDoesNotJoinOlderLoad() throws Exception {
+        var staleEntity = getRecipeEntity();
+        staleEntity.setName("Stale recipe");
+        var updatedEntity = getRecipeEntity();
+        updatedEntity.setName("Updated recipe");
+        var staleLoadStarted = new CountDownLatch(1);
+        var releaseStaleLoad = new CountDownLatch(1);
+        var loads = new AtomicInteger();
+        Mockito.when(recipeRepository.findById(1)).thenAnswer(invocation -> {
+            if(loads.getAndIncrement() > 0)
+                return Optional.of(updatedEntity);
+            staleLoadStarted.countDown();
+            releaseStaleLoad.await(5, TimeUnit.SECONDS);
+            return Optional.of(staleEntity);
+        });
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var staleRead = executor.submit(() -> recipesService.getRecipe(1));
+            Assertions.assertTrue(staleLoadStarted.await(5, TimeUnit.SECONDS));
+
+            // What the committed update does: bump the load generation, then evict
+            recipesService.onRecipeSaved(new RecipeSavedEvent(RecipeMapper.INSTANCE.recipeEntityToRecipe(updatedEntity), new Date()));
+            cacheManager.getCache(RecipesService.RECIPE_CACHE).evict(1);
+            assertEquals("Updated recipe", recipesService.getRecipe(1).getName());
+
+            releaseStaleLoad.countDown();
+            assertEquals("Stale recipe", staleRead.get(5, TimeUnit.SECONDS).getName());
+            // The stale load finished last but did not leave its recipe in the cache
+            assertEquals("Updated recipe", recipesService.getRecipe(1).getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testGetAllRecipes() {
-        Mockito.when(recipeRepository.findAll()).thenReturn(Arrays.asList(getRecipeEntity(), getRecipeEntity()));
-        var recipes = recipesService.getAllRecipes();
+        Mockito.when(recipeRepository.findRecipesAfter(eq(0), any(Pageable.class))).thenReturn(Arrays.asList(getRecipeEntity(), getRecipeEntity()));
+        var recipes = recipesService.getAllRecipes(null, 100);
         assertEquals(2, recipes.size());
         var recipe = recipes.get(0);
         assertEquals(1, recipe.getId().intValue());
@@ -77,12 +168,73 @@ public class RecipeServiceTest {
         assertEquals("Ingredient 2", recipe.getIngredientList().get(1).getName());
     }
 
+    @Test
+    public void testGetAllRecipesWithInvalidPageSize() {
+        Assertions.assertThrows(BadRequestException.class, () -> recipesService.getAllRecipes(null, 0));
+        Assertions.assertThrows(BadRequestException.class,
+                () -> recipesService.getAllRecipes(null, RecipesService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetRecipesKeepsRequestOrderAndChunksIds() {
+        var requestedIds = new ArrayList<Integer>();
+        for(int id = RecipesService.ID_CHUNK_SIZE + 1; id > 0; id--)
+            requestedIds.add(id);
+        requestedIds.add(1);
+        Mockito.when(recipeRepository.findAllWithIngredientsByIdIn(any())).thenAnswer(invocation -> {
+            var recipeEntities = new ArrayList<RecipeEntity>();
+            for(Integer id : (Collection<Integer>) invocation.getArgument(0)) {
+                // Only odd ids exist
+                if(id % 2 == 1) {
+                    var recipeEntity = getRecipeEntity();
+                    recipeEntity.setId(id);
+                    recipeEntities.add(recipeEntity);
+                }
+            }
+            return recipeEntities;
+        });
+
+        var results = recipesService.getRecipes(requestedIds);
+
+        assertEquals(RecipesService.ID_CHUNK_SIZE + 1, results.size());
+        assertEquals(RecipesService.ID_CHUNK_SIZE + 1, results.get(0).getId().intValue());
+        Assertions.assertTrue(results.get(0).isFound());
+        assertEquals(2, results.get(0).getRecipe().getIngredientList().size());
+        assertEquals(RecipesService.ID_CHUNK_SIZE, results.get(1).getId().intValue());
+        Assertions.assertFalse(results.get(1).isFound());
+        Assertions.assertNull(results.get(1).getRecipe());
+        assertEquals(1, results.get(results.size() - 1).getId().intValue());
+        verify(recipeRepository, times(2)).findAllWithIngredientsByIdIn(any());
+    }
+
+    @Test
+    public void testGetRecipesWithInvalidNumberOfIds() {
+        Assertions.assertThrows(BadRequestException.class, () -> recipesService.getRecipes(List.of()));
+        var tooManyIds = new ArrayList<Integer>();
+        for(int id = 0; id <= RecipesService.MAX_PAGE_SIZE; id++)
+            tooManyIds.add(id);
+        Assertions.assertThrows(BadRequestException.class, () -> recipesService.getRecipes(tooManyIds));
+        verifyNoInteractions(recipeRepository);
+    }
+
+    @Test
+    public void testStreamAllRecipes() {
+        Mockito.when(recipeRepository.streamRecipesAfter(5)).thenReturn(Stream.of(getRecipeEntity(), getRecipeEntity()));
+        var recipes = new ArrayList<Recipe>();
+        recipesService.streamAllRecipes(5, recipes::add);
+
+        assertEquals(2, recipes.size());
+        assertEquals("Ingredient 1", recipes.get(0).getIngredientList().get(0).getName());
+        verify(entityManager, times(2)).detach(any(RecipeEntity.class));
+    }
+
     @Test
     public void testModifyRecipe() {
         var recipe = getRecipe();
         recipe.setId(1);
-        Mockito.when(recipeRepository.save(any(RecipeEntity.class))).thenReturn(getRecipeEntity());
-        Mockito.when(recipeRepository.findById(any(Integer.class))).thenReturn(Optional.of(getRecipeEntity()));
+        recipe.setIngredientList(Arrays.asList(new Ingredient(1, "Ingredient 1", "2 nos"), new Ingredient(null, "Ingredient 3", "1 nos")));
+        Mockito.when(recipeRepository.findWithIngredientsById(1)).thenReturn(Optional.of(getRecipeEntity()));
         var savedRecipe =recipesService.modifyExistingRecipe(recipe);
 
         assertEquals(1, savedRecipe.getId().intValue());
@@ -90,8 +242,55 @@ public class RecipeServiceTest {
         assertEquals(4, savedRecipe.getServingCapacity().intValue());
         assertEquals("Instruction", savedRecipe.getInstruction());
         assertEquals(2, savedRecipe.getIngredientList().size());
-        assertEquals("Ingredient 1", savedRecipe.getIngredientList().get(0).getName());
+        assertEquals(1, savedRecipe.getIngredientList().get(0).getId().intValue());
+        assertEquals("2 nos", savedRecipe.getIngredientList().get(0).getQuantity());
+        assertEquals("Ingredient 3", savedRecipe.getIngredientList().get(1).getName());
+        verify(recipeRepository, never()).save(any(RecipeEntity.class));
+        verify(recipeRepository, times(1)).flush();
+        verify(entityManager, times(1)).lock(any(RecipeEntity.class), eq(LockModeType.PESSIMISTIC_FORCE_INCREMENT));
+        verify(eventPublisher, times(1)).publishEvent(any(RecipeSavedEvent.class));
+    }
+
+    @Test
+    public void testModifyRecipeWithForeignIngredient() {
+        var recipe = getRecipe();
+        recipe.setId(1);
+        recipe.setIngredientList(Arrays.asList(new Ingredient(7, "Ingredient 7", "1 nos")));
+        Mockito.when(recipeRepository.findWithIngredientsById(1)).thenReturn(Optional.of(getRecipeEntity()));
+
+        Assertions.assertThrows(BadRequestException.class, () -> recipesService.modifyExistingRecipe(recipe));
+    }
+
+    @Test
+    public void testPatchRecipe() {
+        Mockito.when(recipeRepository.findWithIngredientsById(1)).thenReturn(Optional.of(getRecipeEntity()));
+        var recipePatch = new RecipePatch();
+        recipePatch.setInstruction("New instruction");
+        var savedRecipe = recipesService.patchRecipe(1, recipePatch);
+
+        assertEquals("New instruction", savedRecipe.getInstruction());
+        assertEquals("nonveg", savedRecipe.getType());
+        assertEquals(4, savedRecipe.getServingCapacity().intValue());
+        assertEquals(2, savedRecipe.getIngredientList().size());
         assertEquals("Ingredient 2", savedRecipe.getIngredientList().get(1).getName());
+        verify(entityManager, never()).lock(any(), any());
+    }
+
+    @Test
+    public void testPatchRecipeWithStaleVersion() {
+        Mockito.when(recipeRepository.findWithIngredientsById(1)).thenReturn(Optional.of(getRecipeEntity()));
+        var recipePatch = new RecipePatch();
+        recipePatch.setInstruction("New instruction");
+        recipePatch.setVersion(2);
+
+        Assertions.assertThrows(PreconditionFailedException.class, () -> recipesService.patchRecipe(1, recipePatch));
+        verify(recipeRepository, never()).flush();
+    }
+
+    @Test
+    public void testPatchRecipeWhenRecipeNotExist() {
+        Mockito.when(recipeRepository.findWithIngredientsById(any(Integer.class))).thenReturn(Optional.empty());
+        Assertions.assertThrows(RecipeNotFoundException.class, () -> recipesService.patchRecipe(1, new RecipePatch()));
     }
 
     @Test
@@ -107,13 +306,14 @@ public class RecipeServiceTest {
         doNothing().when(recipeRepository).deleteById(any(Integer.class));
         recipesService.deleteRecipe(1);
         verify(recipeRepository, times(1)).deleteById(any(Integer.class));
+        verify(eventPublisher, times(1)).publishEvent(any(RecipeDeletedEvent.class));
     }
 
     @Test
-    public void testSearchRecipeWithIngredient() {
-        when(recipeRepository.findAllRecipesBySearchCriteria(anyString(), any(Integer.class),
-                anyString())).thenReturn(Arrays.asList(getRecipeEntity()));
-        var recipes = recipesService.searchRecipe("nonveg", 4, "Ingredient 1", true,"Instruction");
+    @SuppressWarnings("unchecked")
+    public void testSearchRecipeFromDatabase() {
+        when(recipeRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(getRecipeEntity()));
+        var recipes = recipesService.searchRecipe(getSearchCriteria());
 
         assertEquals(1, recipes.size());
         var recipe = recipes.get(0);
@@ -125,15 +325,114 @@ public class RecipeServiceTest {
         assertEquals(2, recipe.getIngredientList().size());
         assertEquals("Ingredient 1", recipe.getIngredientList().get(0).getName());
         assertEquals("Ingredient 2", recipe.getIngredientList().get(1).getName());
+        verify(recipeSearchIndex, never()).search(any());
+        assertEquals(1, meterRegistry.get(RecipesService.SEARCH_METRIC)
+                .tags("source", "database", "criteria", "dishType+servings+included+excluded+instruction").timer().count());
+    }
+
+    @Test
+    public void testSearchRecipeFromIndex() {
+        var criteria = getSearchCriteria();
+        when(recipeSearchIndex.isReady()).thenReturn(true);
+        when(recipeSearchIndex.search(criteria)).thenReturn(Arrays.asList(getRecipe()));
+        var recipes = recipesService.searchRecipe(criteria);
+
+        assertEquals(1, recipes.size());
+        // Coalesced callers share the list
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> recipes.add(getRecipe()));
+        verifyNoInteractions(recipeRepository);
+        var resultSizes = meterRegistry.get(RecipesService.SEARCH_METRIC + ".results").tag("source", "index").summary();
+        assertEquals(1, resultSizes.count());
+        assertEquals(1, resultSizes.totalAmount());
+    }
+
+    @Test
+    public void testSearchAfterCommittedWriteDoesNotJoinOlderSearch() throws Exception {
+        var criteria = getSearchCriteria();
+        var staleSearchStarted = new CountDownLatch(1);
+        var releaseStaleSearch = new CountDownLatch(1);
+        var searches = new AtomicInteger();
+        when(recipeSearchIndex.isReady()).thenReturn(true);
+        when(recipeSearchIndex.search(any())).thenAnswer(invocation -> {
+            if(searches.getAndIncrement() > 0)
+                return Arrays.asList(getRecipe(), getRecipe());
+            staleSearchStarted.countDown();
+            releaseStaleSearch.await(5, TimeUnit.SECONDS);
+            return Arrays.asList(getRecipe());
+        });
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var staleSearch = executor.submit(() -> recipesService.searchRecipe(criteria));
+            Assertions.assertTrue(staleSearchStarted.await(5, TimeUnit.SECONDS));
+
+            recipesService.onRecipeSaved(new RecipeSavedEvent(RecipeMapper.INSTANCE.recipeEntityToRecipe(getRecipeEntity()), new Date()));
+            assertEquals(2, recipesService.searchRecipe(getSearchCriteria()).size());
+
+            releaseStaleSearch.countDown();
+            assertEquals(1, staleSearch.get(5, TimeUnit.SECONDS).size());
+            assertEquals(2, searches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSearchFacetsFromDatabaseGroupsInSql() {
+        var criteria = getSearchCriteria();
+        when(recipeSearchIndex.isReady()).thenReturn(false);
+        when(recipeRepository.count(ArgumentMatchers.<Specification<RecipeEntity>>any())).thenReturn(3L);
+        when(recipeRepository.countByDishType(criteria)).thenReturn(Map.of("veg", 1L, "nonveg", 2L));
+        when(recipeRepository.countTopIngredients(criteria, 2)).thenReturn(Map.of("garlic", 3L, "basil", 1L));
+        var recipeFacets = recipesService.searchFacets(criteria, EnumSet.of(RecipeFacet.DISH_TYPE, RecipeFacet.INGREDIENT), 2);
+
+        assertEquals(3, recipeFacets.getTotal());
+        assertEquals(List.of("nonveg", "veg"), List.copyOf(recipeFacets.getDishType().keySet()));
+        assertEquals(List.of("garlic", "basil"), List.copyOf(recipeFacets.getIngredient().keySet()));
+        Assertions.assertNull(recipeFacets.getNumberOfServing());
+        verify(recipeRepository, never()).countByNumberOfServing(any());
+        verify(recipeRepository, never()).findAll(ArgumentMatchers.<Specification<RecipeEntity>>any());
+        verify(recipeSearchIndex, never()).facets(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testSearchFacetsRejectsTopIngredientsOutOfRange() {
+        Assertions.assertThrows(BadRequestException.class, () -> recipesService.searchFacets(getSearchCriteria(),
+                EnumSet.allOf(RecipeFacet.class), RecipesService.MAX_FACET_VALUES + 1));
+        verifyNoInteractions(recipeRepository, recipeSearchIndex);
+    }
+
+    @Test
+    public void testSearchCriteriaShape() {
+        var criteria = new RecipeSearchCriteria();
+        assertEquals("none", RecipesService.criteriaShape(criteria));
+        criteria.setExcludedIngredients(Arrays.asList("Ingredient 3"));
+        criteria.setInstructionSearch(" ");
+        assertEquals("excluded", RecipesService.criteriaShape(criteria));
     }
 
     @Test
-    public void testSearchRecipeWithoutIngredient() {
-        when(recipeRepository.findAllRecipesBySearchCriteria(anyString(), any(Integer.class)
-                , anyString())).thenReturn(Arrays.asList(getRecipeEntity()));
-        var recipes = recipesService.searchRecipe("nonveg", 4, "Ingredient 1", false,"Instruction");
+    public void testSearchKeyIgnoresIngredientOrderAndCase() {
+        var criteria = getSearchCriteria();
+        criteria.setIncludedIngredients(Arrays.asList("Ingredient 1", " ingredient 2"));
+        var sameCriteria = getSearchCriteria();
+        sameCriteria.setIncludedIngredients(Arrays.asList("INGREDIENT 2", "Ingredient 1", "ingredient 1"));
+        assertEquals(RecipesService.SearchKey.of(criteria), RecipesService.SearchKey.of(sameCriteria));
+
+        sameCriteria.setInstructionSearch(" INSTRUCTION instruction ");
+        assertEquals(RecipesService.SearchKey.of(criteria), RecipesService.SearchKey.of(sameCriteria));
+
+        sameCriteria.setInstructionSearch("instruction boil");
+        Assertions.assertNotEquals(RecipesService.SearchKey.of(criteria), RecipesService.SearchKey.of(sameCriteria));
+    }
 
-        assertEquals(0, recipes.size());
+    private RecipeSearchCriteria getSearchCriteria() {
+        var criteria = new RecipeSearchCriteria();
+        criteria.setDishType("nonveg");
+        criteria.setNumberOfServing(4);
+        criteria.setIncludedIngredients(Arrays.asList("Ingredient 1"));
+        criteria.setExcludedIngredients(Arrays.asList("Ingredient 3"));
+        criteria.setInstructionSearch("Instruction");
+        return criteria;
     }
 
     private RecipeEntity getRecipeEntity() {
@@ -150,7 +449,8 @@ public class RecipeServiceTest {
         recipeEntity.setType("nonveg");
         recipeEntity.setServingCapacity(4);
         recipeEntity.setInstruction("Instruction");
-        recipeEntity.setIngredientEntityList(Arrays.asList(ingredientEntity1, ingredientEntity2));
+        recipeEntity.setVersion(3);
+        recipeEntity.setIngredientEntityList(new ArrayList<>(Arrays.asList(ingredientEntity1, ingredientEntity2)));
 
         return recipeEntity;
     }
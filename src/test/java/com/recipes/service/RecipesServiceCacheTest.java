@@ -0,0 +1,113 @@
+package com.recipes.service;
+
+import com.recipes.entities.RecipeEntity;
+import com.recipes.pojos.Ingredient;
+import com.recipes.pojos.Recipe;
+import com.recipes.repository.RecipeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "recipes.search.index.enabled=false")
+public class RecipesServiceCacheTest {
+
+    @MockBean
+    RecipeRepository recipeRepository;
+
+    @Autowired
+    RecipesService recipesService;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCache(RecipesService.RECIPE_CACHE).clear();
+        when(recipeRepository.findById(1)).thenReturn(Optional.of(getRecipeEntity()));
+    }
+
+    @Test
+    public void testGetRecipeIsCached() {
+        var recipe = recipesService.getRecipe(1);
+
+        assertEquals(recipe.getName(), recipesService.getRecipe(1).getName());
+        verify(recipeRepository, times(1)).findById(1);
+    }
+
+    @Test
+    public void testCachedRecipeIsNotShared() {
+        var recipe = recipesService.getRecipe(1);
+        recipe.setName("Changed");
+        recipe.getIngredientList().add(new Ingredient(null, "Salt", "1 tsp"));
+
+        var cachedRecipe = recipesService.getRecipe(1);
+        assertNotSame(recipe, cachedRecipe);
+        assertEquals("Bread", cachedRecipe.getName());
+        assertTrue(cachedRecipe.getIngredientList().isEmpty());
+        verify(recipeRepository, times(1)).findById(1);
+    }
+
+    @Test
+    public void testJsonAndObjectReadsShareOneCacheEntry() {
+        var hits = cacheHits();
+        var serializedRecipe = recipesService.getSerializedRecipe(1);
+
+        assertEquals("Bread", recipesService.getRecipe(1).getName());
+        assertSame(serializedRecipe, recipesService.getSerializedRecipe(1));
+        verify(recipeRepository, times(1)).findById(1);
+        assertEquals(hits + 2, cacheHits());
+    }
+
+    @Test
+    public void testModifyRecipeEvictsCachedRecipe() {
+        when(recipeRepository.findWithIngredientsById(1)).thenReturn(Optional.of(getRecipeEntity()));
+        recipesService.getRecipe(1);
+        var recipe = new Recipe();
+        recipe.setId(1);
+        recipesService.modifyExistingRecipe(recipe);
+        recipesService.getRecipe(1);
+
+        verify(recipeRepository, times(2)).findById(1);
+        verify(recipeRepository, times(1)).findWithIngredientsById(1);
+    }
+
+    @Test
+    public void testDeleteRecipeEvictsCachedRecipe() {
+        recipesService.getRecipe(1);
+        recipesService.deleteRecipe(1);
+        recipesService.getRecipe(1);
+
+        verify(recipeRepository, times(2)).findById(1);
+    }
+
+    private double cacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", RecipesService.RECIPE_CACHE).tag("result", "hit")
+                .functionCounter().count();
+    }
+
+    private RecipeEntity getRecipeEntity() {
+        var recipeEntity = new RecipeEntity();
+        recipeEntity.setId(1);
+        recipeEntity.setName("Bread");
+        recipeEntity.setType("veg");
+        recipeEntity.setServingCapacity(4);
+        recipeEntity.setInstruction("Instruction");
+        return recipeEntity;
+    }
+}
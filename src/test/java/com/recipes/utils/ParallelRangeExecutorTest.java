@@ -0,0 +1,79 @@
+package com.recipes.utils;
+
+import com.recipes.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelRangeExecutorTest {
+
+    private final ParallelRangeExecutor parallelRangeExecutor = ParallelRangeExecutor.withPool("test-", 4, 100, 3);
+
+    @AfterEach
+    public void tearDown() {
+        parallelRangeExecutor.shutdown();
+    }
+
+    @Test
+    public void testSmallWorkRunsOnCallingThread() {
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        var ranges = parallelRangeExecutor.mapRanges(99, (start, end) -> {
+            threads.add(Thread.currentThread().getName());
+            return end - start;
+        });
+
+        assertEquals(List.of(99L), ranges);
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    public void testPositionsAreSplitIntoOrderedRanges() {
+        var ranges = parallelRangeExecutor.mapRanges(1000, (start, end) ->
+                IntStream.range((int) start, (int) end).boxed().collect(Collectors.toList()));
+
+        assertEquals(3, ranges.size());
+        var positions = new ArrayList<Integer>();
+        ranges.forEach(positions::addAll);
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), positions);
+    }
+
+    @Test
+    public void testBitmapIsSplitIntoIdRangesOfEqualCardinality() {
+        var ids = new RoaringBitmap();
+        ids.add(5L, 305L);
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        var counts = parallelRangeExecutor.mapRanges(ids, (start, end) -> {
+            threads.add(Thread.currentThread().getName());
+            return ids.rangeCardinality(start, end);
+        });
+
+        assertEquals(List.of(100L, 100L, 100L), counts);
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("test-")));
+        assertEquals(List.of(0L), parallelRangeExecutor.mapRanges(new RoaringBitmap(), (start, end) -> end - start));
+    }
+
+    @Test
+    public void testExceptionOfAnyRangeIsRethrown() {
+        assertThrows(BadRequestException.class, () -> parallelRangeExecutor.mapRanges(1000, (start, end) -> {
+            if(start > 0)
+                throw new BadRequestException("Failed range " + start);
+            return end;
+        }));
+    }
+
+    @Test
+    public void testSequentialExecutorNeverSplits() {
+        assertEquals(1, ParallelRangeExecutor.SEQUENTIAL.mapRanges(10_000_000, (start, end) -> end).size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.recipes.utils;
+
+import com.recipes.exception.RecipeNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            var results = new ArrayList<Future<List<String>>>();
+            results.add(executor.submit(() -> singleFlight.execute("veg", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return List.of("Soup");
+            })));
+            awaitExecuted(1);
+            for(int i = 1; i < CALLERS; i++)
+                results.add(executor.submit(() -> singleFlight.execute("veg", () -> {
+                    loads.incrementAndGet();
+                    return List.of("Other");
+                })));
+            awaitCoalesced(CALLERS - 1);
+            release.countDown();
+
+            var first = results.get(0).get(5, TimeUnit.SECONDS);
+            for(Future<List<String>> result : results)
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Nothing is retained once the call is over
+        assertEquals(List.of("Salad"), singleFlight.execute("veg", () -> List.of("Salad")));
+        assertEquals(2, singleFlight.getExecutedCount());
+    }
+
+    @Test
+    public void testWaitingCallersSeeLoaderException() throws Exception {
+        var release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var leader = executor.submit(() -> singleFlight.execute("missing", () -> {
+                await(release);
+                throw new RecipeNotFoundException("Recipe not found");
+            }));
+            awaitExecuted(1);
+            var follower = executor.submit(() -> singleFlight.execute("missing", List::of));
+            awaitCoalesced(1);
+            release.countDown();
+
+            var leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            var followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertTrue(leaderFailure.getCause() instanceof RecipeNotFoundException);
+            assertSame(leaderFailure.getCause(), followerFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitExecuted(long count) throws InterruptedException {
+        awaitCount(singleFlight::getExecutedCount, count);
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        awaitCount(singleFlight::getCoalescedCount, count);
+    }
+
+    private static void awaitCount(LongSupplier counter, long count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(counter.getAsLong() < count) {
+            if(System.nanoTime() - deadline > 0)
+                fail("Count did not reach " + count + " within 5 seconds, it is " + counter.getAsLong());
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package integrationtest.com.ing;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.recipes.RecipesApplication;
+import com.recipes.config.WireFormatConfiguration;
 import com.recipes.pojos.Ingredient;
 import com.recipes.pojos.Recipe;
+import com.recipes.pojos.RecipeFacets;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
@@ -14,14 +20,26 @@ import org.springframework.http.*;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(classes = RecipesApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@AutoConfigureMetrics
 public class RecipeControllerIT {
 
     @Autowired
@@ -69,6 +87,153 @@ public class RecipeControllerIT {
 
     }
 
+    @Test
+    public void testPatchRecipeEndPoint() throws Exception {
+        var newRecipe = buildRecipe(null, "Soup", "veg", 2);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = createRecipe(newRecipe).getBody();
+        var storedIngredients = testGetRecipe(recipeId).getBody().getIngredientList();
+
+        var patchedRecipe = patchRecipe(recipeId, "{\"instruction\":\"Boil\"}");
+        assertEquals(HttpStatus.OK.value(), patchedRecipe.statusCode());
+        var retrievedRecipe = testGetRecipe(recipeId).getBody();
+        assertEquals("Boil", retrievedRecipe.getInstruction());
+        assertEquals("Soup", retrievedRecipe.getName());
+        assertEquals(storedIngredients.size(), retrievedRecipe.getIngredientList().size());
+
+        // Keep the first ingredient, drop the others and add a new one
+        var eTag = patchedRecipe.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        var keptIngredient = storedIngredients.get(0);
+        patchedRecipe = patchRecipe(recipeId, "{\"ingredientList\":[{\"id\":" + keptIngredient.getId()
+                + ",\"name\":\"Salt\",\"quantity\":\"1 tsp\"},{\"name\":\"Water\",\"quantity\":\"1 l\"}]}");
+        assertEquals(HttpStatus.OK.value(), patchedRecipe.statusCode());
+        assertNotEquals(eTag, patchedRecipe.headers().firstValue(HttpHeaders.ETAG).orElseThrow());
+        retrievedRecipe = testGetRecipe(recipeId).getBody();
+        assertEquals(2, retrievedRecipe.getIngredientList().size());
+        assertEquals(keptIngredient.getId(), retrievedRecipe.getIngredientList().get(0).getId());
+        assertEquals("Salt", retrievedRecipe.getIngredientList().get(0).getName());
+        assertEquals("Water", retrievedRecipe.getIngredientList().get(1).getName());
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), patchRecipe(recipeId, "{\"name\":\" \"}").statusCode());
+        assertEquals(HttpStatus.NOT_FOUND.value(), patchRecipe(-1, "{\"name\":\"Soup\"}").statusCode());
+        deleteRecipe(recipeId);
+    }
+
+    @Test
+    public void testConditionalRequests() {
+        var newRecipe = buildRecipe(null, "Salad", "veg", 1);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = createRecipe(newRecipe).getBody();
+
+        var retrievedRecipe = testGetRecipe(recipeId);
+        var eTag = retrievedRecipe.getHeaders().getETag();
+        assertNotNull(eTag);
+
+        var headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        var notModified = restTemplate.exchange(buildApiPath("/api/recipe/" + recipeId), HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+
+        var recipe = retrievedRecipe.getBody();
+        recipe.setInstruction("Toss");
+        var modifiedRecipe = modifyRecipe(recipe, eTag);
+        assertEquals(HttpStatus.OK, modifiedRecipe.getStatusCode());
+        assertNotEquals(eTag, modifiedRecipe.getHeaders().getETag());
+        assertEquals(modifiedRecipe.getHeaders().getETag(), testGetRecipe(recipeId).getHeaders().getETag());
+
+        // The first update moved the version on, a second one based on the same read has to fail
+        recipe.setInstruction("Shake");
+        assertEquals(HttpStatus.PRECONDITION_FAILED, modifyRecipe(recipe, eTag).getStatusCode());
+        assertEquals("Toss", testGetRecipe(recipeId).getBody().getInstruction());
+        deleteRecipe(recipeId);
+    }
+
+    @Test
+    public void testGetRecipeSendsPrecompressedJson() throws Exception {
+        var newRecipe = buildRecipe(null, "Bread", "veg", 6);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        newRecipe.setInstruction("Knead the dough and let it rest. ".repeat(30));
+        var recipeId = createRecipe(newRecipe).getBody();
+
+        var request = HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build();
+        var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.OK.value(), response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElseThrow());
+        try (var gzipStream = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            var recipe = new ObjectMapper().readValue(gzipStream, Recipe.class);
+            assertEquals(newRecipe.getInstruction(), recipe.getInstruction());
+        }
+
+        // The gzipped body has an ETag of its own, either one is still current for a conditional GET
+        var eTag = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId))).build(),
+                HttpResponse.BodyHandlers.discarding()).headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertEquals(eTag.replace("\"", "") + "-gz", response.headers().firstValue(HttpHeaders.ETAG).orElseThrow().replace("\"", ""));
+        var notModified = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, eTag).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.statusCode());
+        deleteRecipe(recipeId);
+    }
+
+    @Test
+    public void testBinaryWireFormats() throws Exception {
+        var newRecipe = buildRecipe(null, "Pie", "veg", 8);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = createRecipe(newRecipe).getBody();
+
+        var recipeRequest = HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)));
+        var jsonResponse = HttpClient.newHttpClient().send(recipeRequest.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, jsonResponse.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElseThrow());
+
+        var cborMapper = new ObjectMapper(new CBORFactory());
+        var cborResponse = HttpClient.newHttpClient().send(recipeRequest.header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(MediaType.APPLICATION_CBOR_VALUE, cborResponse.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElseThrow());
+        assertEquals("Pie", cborMapper.readValue(cborResponse.body(), Recipe.class).getName());
+
+        // Both representations vary by Accept and carry ETags of their own, so neither validates the other
+        var jsonETag = jsonResponse.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        var cborETag = cborResponse.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertEquals(jsonETag.replace("\"", "") + "-cbor", cborETag.replace("\"", ""));
+        assertTrue(variesByAccept(jsonResponse));
+        assertTrue(variesByAccept(cborResponse));
+        var conditionalCborRequest = HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE);
+        assertEquals(HttpStatus.OK.value(), HttpClient.newHttpClient().send(conditionalCborRequest.copy()
+                .header(HttpHeaders.IF_NONE_MATCH, jsonETag).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), HttpClient.newHttpClient().send(conditionalCborRequest.copy()
+                .header(HttpHeaders.IF_NONE_MATCH, cborETag).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+
+        var cborPatch = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE)
+                .header(HttpHeaders.IF_MATCH, cborETag)
+                .method(HttpMethod.PATCH.name(), HttpRequest.BodyPublishers.ofString("{\"instruction\":\"Bake\"}")).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.OK.value(), cborPatch.statusCode());
+        var patchedRecipe = cborMapper.readValue(cborPatch.body(), Recipe.class);
+        assertEquals("\"" + patchedRecipe.getVersion() + "-cbor\"", cborPatch.headers().firstValue(HttpHeaders.ETAG).orElseThrow());
+
+        var unsupportedResponse = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML_VALUE).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.NOT_ACCEPTABLE.value(), unsupportedResponse.statusCode());
+
+        var smileRequest = HttpRequest.newBuilder(URI.create(buildApiPath("/api/search/recipe?dishType=veg&numberOfServing=8")))
+                .header(HttpHeaders.ACCEPT, WireFormatConfiguration.SMILE_MEDIA_TYPE_VALUE).build();
+        var smileResponse = HttpClient.newHttpClient().send(smileRequest, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(HttpStatus.OK.value(), smileResponse.statusCode());
+        assertTrue(variesByAccept(smileResponse));
+        var recipes = new ObjectMapper(new SmileFactory()).readValue(smileResponse.body(), Recipe[].class);
+        assertEquals(recipeId, recipes[0].getId());
+
+        var pageResponse = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipes")))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE).build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(1, cborMapper.readValue(pageResponse.body(), Recipe[].class).length);
+        deleteRecipe(recipeId);
+    }
+
     @Test
     public void testDeleteExistingRecipeEndPoint() {
         var newRecipe =buildRecipe(1, "Cake", "eg", 5);
@@ -95,6 +260,43 @@ public class RecipeControllerIT {
         deleteRecipe(createdResponseEntity.getBody());
     }
 
+    @Test
+    public void testSearchRecipeFacets() {
+        var createdResponseEntity = createRecipe(buildRecipe(1, "Cake", "facetdish", 7));
+        var facetsPath = buildApiPath("/api/search/recipe/facets?dishType=facetdish&topIngredients=2");
+        var facetsResponseEntity = restTemplate.getForEntity(facetsPath, RecipeFacets.class);
+
+        assertEquals(HttpStatus.OK, facetsResponseEntity.getStatusCode());
+        var recipeFacets = facetsResponseEntity.getBody();
+        assertNotNull(recipeFacets);
+        assertEquals(1, recipeFacets.getTotal());
+        assertEquals(Map.of("facetdish", 1L), recipeFacets.getDishType());
+        assertEquals(Map.of(7, 1L), recipeFacets.getNumberOfServing());
+        assertEquals(Map.of("ingredient1", 1L, "ingredient2", 1L), recipeFacets.getIngredient());
+
+        var ingredientOnly = restTemplate.getForEntity(facetsPath + "&facets=ingredient", RecipeFacets.class).getBody();
+        assertNotNull(ingredientOnly);
+        assertNull(ingredientOnly.getDishType());
+        assertEquals(2, ingredientOnly.getIngredient().size());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(facetsPath + "&facets=colour", String.class).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(
+                buildApiPath("/api/search/recipe/facets?topIngredients=0"), String.class).getStatusCode());
+        deleteRecipe(createdResponseEntity.getBody());
+    }
+
+    @Test
+    public void testSearchMetricsArePublished() {
+        searchRecipe("veg", 4, "Ingredient1", true, "Step");
+        var prometheusScrape = restTemplate.getForEntity(buildApiPath("/actuator/prometheus"), String.class);
+
+        assertEquals(HttpStatus.OK, prometheusScrape.getStatusCode());
+        assertTrue(prometheusScrape.getBody().contains("recipes_search_seconds_bucket{criteria=\"dishType+servings+included+instruction\""));
+        assertTrue(prometheusScrape.getBody().contains("recipes_search_results_count"));
+        assertTrue(prometheusScrape.getBody().contains("recipes_requests_coalesced_total{operation=\"searchRecipe\""));
+        assertTrue(prometheusScrape.getBody().contains("http_server_requests_seconds_bucket"));
+        assertTrue(prometheusScrape.getBody().contains("spring_data_repository_invocations_seconds_bucket"));
+    }
+
     @Test
     public void testSearchRecipeWhenNotFound() {
         var createdResponseEntity = createRecipe(buildRecipe(1, "Cake", "veg", 5));
@@ -132,6 +334,110 @@ public class RecipeControllerIT {
         assertEquals(0, recipesResponseEntity.getBody().size());
     }
 
+    @Test
+    public void testStreamAllRecipes() {
+        var createdResponseEntity = createRecipe(buildRecipe(1, "Cake", "eg", 5));
+        var streamResponseEntity = streamAllRecipes();
+
+        assertEquals(HttpStatus.OK, streamResponseEntity.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, streamResponseEntity.getHeaders().getContentType());
+        assertNotNull(streamResponseEntity.getBody());
+        assertEquals(1, streamResponseEntity.getBody().lines().count());
+        deleteRecipe(createdResponseEntity.getBody());
+    }
+
+    @Test
+    public void testGetRecipesBatch() {
+        var newRecipe = buildRecipe(null, "Curry", "veg", 3);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = createRecipe(newRecipe).getBody();
+
+        var lookupResults = restTemplate.exchange(buildApiPath("/api/recipes/batch?ids=-1," + recipeId), HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+        assertEquals(HttpStatus.OK, lookupResults.getStatusCode());
+        assertEquals(2, lookupResults.getBody().size());
+        assertEquals(Map.of("id", -1, "found", false), lookupResults.getBody().get(0));
+        assertEquals(true, lookupResults.getBody().get(1).get("found"));
+        assertEquals("Curry", ((Map<?, ?>) lookupResults.getBody().get(1).get("recipe")).get("name"));
+
+        var postedLookup = restTemplate.exchange(buildApiPath("/api/recipes/batch"), HttpMethod.POST,
+                new HttpEntity<>(List.of(recipeId)), new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+        assertEquals(recipeId, postedLookup.getBody().get(0).get("id"));
+        deleteRecipe(recipeId);
+    }
+
+    @Test
+    public void testReactiveGetRecipe() {
+        var newRecipe = buildRecipe(null, "Stew", "nonveg", 4);
+        newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = createRecipe(newRecipe).getBody();
+
+        var recipeResponseEntity = restTemplate.getForEntity(buildApiPath("/api/reactive/recipe/" + recipeId), Recipe.class);
+        assertEquals(HttpStatus.OK, recipeResponseEntity.getStatusCode());
+        assertEquals(testGetRecipe(recipeId).getHeaders().getETag(), recipeResponseEntity.getHeaders().getETag());
+        assertEquals("Stew", recipeResponseEntity.getBody().getName());
+        assertEquals(newRecipe.getIngredientList().size(), recipeResponseEntity.getBody().getIngredientList().size());
+
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(buildApiPath("/api/reactive/recipe/-1"), String.class).getStatusCode());
+        deleteRecipe(recipeId);
+    }
+
+    @Test
+    public void testReactiveGetAndStreamAllRecipes() {
+        var recipeIds = new ArrayList<Integer>();
+        for(int i = 0; i < 3; i++) {
+            var newRecipe = buildRecipe(null, "Cake " + i, "veg", 2);
+            newRecipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+            recipeIds.add(createRecipe(newRecipe).getBody());
+        }
+
+        var page = restTemplate.exchange(buildApiPath("/api/reactive/recipes?limit=2"), HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<Recipe>>() {});
+        assertEquals(HttpStatus.OK, page.getStatusCode());
+        assertEquals(recipeIds.subList(0, 2), List.of(page.getBody().get(0).getId(), page.getBody().get(1).getId()));
+        assertEquals(4, page.getBody().get(1).getIngredientList().size());
+
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        var stream = restTemplate.exchange(buildApiPath("/api/reactive/recipes?afterId=" + recipeIds.get(0)), HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, stream.getStatusCode());
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(stream.getHeaders().getContentType()));
+        assertEquals(2, stream.getBody().lines().count());
+
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(buildApiPath("/api/reactive/recipes?limit=0"), String.class).getStatusCode());
+        recipeIds.forEach(this::deleteRecipe);
+    }
+
+    @Test
+    public void testReactiveSearchRecipe() {
+        var createdResponseEntity = createRecipe(buildRecipe(1, "Cake", "veg", 5));
+        var searchPath = buildApiPath("/api/reactive/search/recipe?dishType=veg&numberOfServing=5&includeIngredients=ingredient1"
+                + "&excludeIngredients=Pepper&instructionSearch=Step-B");
+
+        var recipesResponseEntity = restTemplate.exchange(searchPath, HttpMethod.GET, null, new ParameterizedTypeReference<List<Recipe>>() {});
+        assertEquals(HttpStatus.OK, recipesResponseEntity.getStatusCode());
+        assertEquals(1, recipesResponseEntity.getBody().size());
+        assertEquals(createdResponseEntity.getBody(), recipesResponseEntity.getBody().get(0).getId());
+
+        var noMatch = restTemplate.exchange(searchPath + "&excludeIngredients=Ingredient2", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<Recipe>>() {});
+        assertEquals(0, noMatch.getBody().size());
+
+        // JSON results are collected before they are written, so they are limited; NDJSON streams every match
+        var secondRecipeId = createRecipe(buildRecipe(1, "Cake", "veg", 5)).getBody();
+        var limited = restTemplate.exchange(searchPath + "&limit=1", HttpMethod.GET, null, new ParameterizedTypeReference<List<Recipe>>() {});
+        assertEquals(List.of(createdResponseEntity.getBody()), List.of(limited.getBody().get(0).getId()));
+        assertEquals(1, limited.getBody().size());
+        assertEquals(HttpStatus.BAD_REQUEST, restTemplate.getForEntity(searchPath + "&limit=1001", String.class).getStatusCode());
+        var headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        var stream = restTemplate.exchange(searchPath, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(2, stream.getBody().lines().count());
+        deleteRecipe(secondRecipeId);
+        deleteRecipe(createdResponseEntity.getBody());
+    }
+
     public ResponseEntity<Integer> createRecipe(Recipe recipe) {
         String apiPath = buildApiPath("/api/recipe");
         HttpHeaders headers = new HttpHeaders();
@@ -159,15 +465,47 @@ public class RecipeControllerIT {
         return restTemplate.exchange(apiPath, HttpMethod.GET, request, new ParameterizedTypeReference<List<Recipe>>() {}, new HashMap<>());
     }
 
+    private ResponseEntity<String> streamAllRecipes() {
+        String apiPath = buildApiPath("/api/recipes");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        HttpEntity<Recipe> request = new HttpEntity<>(headers);
+
+        return restTemplate.exchange(apiPath, HttpMethod.GET, request, String.class);
+    }
+
     public ResponseEntity<Recipe> modifyRecipe(Recipe modifiedRecipe) {
+        return modifyRecipe(modifiedRecipe, null);
+    }
+
+    public ResponseEntity<Recipe> modifyRecipe(Recipe modifiedRecipe, String ifMatch) {
         String apiPath = buildApiPath("/api/recipe");
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
+        if(ifMatch != null)
+            headers.setIfMatch(ifMatch);
         HttpEntity<Recipe> request = new HttpEntity<>(modifiedRecipe, headers);
 
         return restTemplate.exchange(apiPath, HttpMethod.PUT, request, Recipe.class);
     }
 
+    // The JDK client is used here because the default RestTemplate request factory can not send PATCH
+    // Tomcat folds the Vary values into one lower case list when it compresses the response
+    private static boolean variesByAccept(HttpResponse<?> response) {
+        return response.headers().allValues(HttpHeaders.VARY).stream().flatMap(vary -> Arrays.stream(vary.split(",")))
+                .anyMatch(header -> header.trim().equalsIgnoreCase(HttpHeaders.ACCEPT));
+    }
+
+    public HttpResponse<String> patchRecipe(Integer recipeId, String recipePatch) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(buildApiPath("/api/recipe/" + recipeId)))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .method(HttpMethod.PATCH.name(), HttpRequest.BodyPublishers.ofString(recipePatch))
+                .build();
+
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
     public ResponseEntity<String> deleteRecipe(Integer recipeId) {
         String apiPath = buildApiPath("/api/recipe/" + recipeId);
         HttpHeaders headers = new HttpHeaders();
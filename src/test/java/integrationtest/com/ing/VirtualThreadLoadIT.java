@@ -0,0 +1,140 @@
+package integrationtest.com.ing;
+
+import com.recipes.RecipesApplication;
+import com.recipes.config.VirtualThreads;
+import com.recipes.pojos.Recipe;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Load test for the virtual thread mode: every query is slowed down by {@link #QUERY_DELAY_MS}, so throughput
+ * with Tomcat's worker pool is capped at threads / request time. On virtual threads the cap is the connection pool,
+ * which is deliberately larger here. The delay is long next to the CPU time of a request, so the worker pool stays
+ * the bottleneck even on a single core. The test is skipped on JDKs without virtual threads.
+ */
+@SpringBootTest(classes = RecipesApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "recipes.virtual-threads.enabled=true",
+        "recipes.search.index.enabled=false",
+        "server.tomcat.threads.max=" + VirtualThreadLoadIT.WORKER_THREADS,
+        "recipes.virtual-threads.connection-pool-size=100",
+        "spring.jpa.show-sql=false"})
+@Slf4j
+public class VirtualThreadLoadIT {
+
+    static final int WORKER_THREADS = 20;
+    private static final long QUERY_DELAY_MS = 250;
+    private static final int CONCURRENT_REQUESTS = 1000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testThroughputBeyondWorkerPool() throws Exception {
+        assumeTrue(VirtualThreads.isAvailable(), "Java " + Runtime.version() + " has no virtual threads");
+        var recipe = RecipeControllerIT.buildRecipe(null, "Stew", "nonveg", 4);
+        recipe.getIngredientList().forEach(ingredient -> ingredient.setId(null));
+        var recipeId = restTemplate.postForEntity("http://localhost:" + port + "/api/recipe", recipe, Integer.class).getBody();
+
+        // A page read is two statements, the ids and then the recipes with their ingredients
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/recipes?limit=5")).build();
+        var client = HttpClient.newHttpClient();
+        long start = System.nanoTime();
+        var responses = new ArrayList<CompletableFuture<HttpResponse<String>>>(CONCURRENT_REQUESTS);
+        for(int i = 0; i < CONCURRENT_REQUESTS; i++)
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        for(CompletableFuture<HttpResponse<String>> response : responses)
+            assertEquals(HttpStatus.OK.value(), response.get(1, TimeUnit.MINUTES).statusCode());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double throughput = CONCURRENT_REQUESTS / seconds;
+        double workerPoolCeiling = WORKER_THREADS * 1000.0 / (2 * QUERY_DELAY_MS);
+        log.info("{} concurrent requests in {} s: {} requests/s, worker pool ceiling {} requests/s",
+                CONCURRENT_REQUESTS, String.format("%.2f", seconds), Math.round(throughput), Math.round(workerPoolCeiling));
+        assertTrue(throughput > workerPoolCeiling, "Virtual threads should exceed the worker pool ceiling of "
+                + Math.round(workerPoolCeiling) + " requests/s, got " + Math.round(throughput));
+        restTemplate.delete("http://localhost:" + port + "/api/recipe/" + recipeId);
+    }
+
+    @TestConfiguration
+    static class SlowDataSourceConfiguration {
+
+        @Bean
+        static BeanPostProcessor slowDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? new SlowDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Holds the connection for an extra {@link #QUERY_DELAY_MS} on every prepared query, like a remote database would.
+     */
+    static class SlowDataSource extends DelegatingDataSource {
+
+        SlowDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            var connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        var result = invoke(connection, method, args);
+                        return result instanceof PreparedStatement ? slowStatement((PreparedStatement) result) : result;
+                    });
+        }
+
+        private static PreparedStatement slowStatement(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(SlowDataSource.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if(method.getName().equals("executeQuery"))
+                            Thread.sleep(QUERY_DELAY_MS);
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch(InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}